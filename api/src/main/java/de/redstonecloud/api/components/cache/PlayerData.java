@@ -1,7 +1,14 @@
 package de.redstonecloud.api.components.cache;
 
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.redstonecloud.api.redis.cache.Cache;
+import de.redstonecloud.api.redis.cache.CacheMode;
+import de.redstonecloud.api.util.Keys;
+import redis.clients.jedis.exceptions.JedisDataException;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 public record PlayerData(String name, UUID uuid, String address, String network, String server, JsonObject extraData) {
@@ -16,14 +23,77 @@ public record PlayerData(String name, UUID uuid, String address, String network,
         return json;
     }
 
+    /**
+     * Hash fields of the player in {@code HASH} cache mode, {@code network} and {@code server} are left out while unset.
+     */
+    public Map<String, String> toFields() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("name", name);
+        fields.put("uuid", uuid.toString());
+        fields.put("address", address);
+        if (network != null) fields.put("network", network);
+        if (server != null) fields.put("server", server);
+        fields.put("extraData", extraData.toString());
+        return fields;
+    }
+
     public static PlayerData parse(JsonObject data) {
         return new PlayerData(
                 data.get("name").getAsString(),
                 UUID.fromString(data.get("uuid").getAsString()),
                 data.get("address").getAsString(),
-                data.get("network").getAsString(),
-                data.get("server").getAsString(),
+                data.get("network").isJsonNull() ? null : data.get("network").getAsString(),
+                data.get("server").isJsonNull() ? null : data.get("server").getAsString(),
                 data.getAsJsonObject("extraData")
         );
     }
+
+    public static PlayerData parse(Map<String, String> fields) {
+        return new PlayerData(
+                fields.get("name"),
+                UUID.fromString(fields.get("uuid")),
+                fields.get("address"),
+                fields.get("network"),
+                fields.get("server"),
+                JsonParser.parseString(fields.get("extraData")).getAsJsonObject()
+        );
+    }
+
+    /**
+     * Reads the cached player in either cache mode, so readers keep working while the cloud switches modes.
+     *
+     * @return the player, or {@code null} if it is not cached
+     */
+    public static PlayerData load(Cache cache, UUID uuid) {
+        String key = Keys.CACHE_PREFIX_PLAYER + uuid;
+        String json = cache.pending(key);
+        if (json != null) {
+            return parse(JsonParser.parseString(json).getAsJsonObject());
+        }
+
+        // read in the configured mode first, the other format only shows up while the cloud switches modes
+        if (cache.getMode() == CacheMode.HASH) {
+            try {
+                return loadHash(cache, key);
+            } catch (JedisDataException e) {
+                return loadJson(cache, key);
+            }
+        }
+
+        try {
+            return loadJson(cache, key);
+        } catch (JedisDataException e) {
+            return loadHash(cache, key);
+        }
+    }
+
+    private static PlayerData loadJson(Cache cache, String key) {
+        String json = cache.get(key);
+        return json == null ? null : parse(JsonParser.parseString(json).getAsJsonObject());
+    }
+
+    private static PlayerData loadHash(Cache cache, String key) {
+        Map<String, String> fields = cache.getHash(key);
+        return fields.isEmpty() ? null : parse(fields);
+    }
 }
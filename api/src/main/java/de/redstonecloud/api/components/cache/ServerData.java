@@ -2,7 +2,15 @@ package de.redstonecloud.api.components.cache;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.redstonecloud.api.redis.cache.Cache;
+import de.redstonecloud.api.redis.cache.CacheMode;
+import de.redstonecloud.api.util.Keys;
+import redis.clients.jedis.exceptions.JedisDataException;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 public record ServerData(String name, UUID uuid, String template, String status, String serverType, int port, boolean proxy, JsonArray connectedPlayers, JsonObject extraData, String nodeId, String address) {
@@ -22,6 +30,32 @@ public record ServerData(String name, UUID uuid, String template, String status,
         return json;
     }
 
+    /**
+     * Hash fields of the server in {@code HASH} cache mode, {@code connectedPlayers} is stored in the set at {@link #playersKey(String)}.
+     */
+    public Map<String, String> toFields() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("name", name);
+        fields.put("uuid", uuid.toString());
+        fields.put("template", template);
+        fields.put("status", status);
+        fields.put("serverType", serverType);
+        fields.put("port", String.valueOf(port));
+        fields.put("proxy", String.valueOf(proxy));
+        fields.put("extraData", extraData.toString());
+        fields.put("nodeId", nodeId);
+        fields.put("address", address);
+        return fields;
+    }
+
+    /**
+     * Key of the set holding the connected players of the server cached at {@code serverKey}.
+     * Carries the server key as hash tag, so it lives on the same shard.
+     */
+    public static String playersKey(String serverKey) {
+        return "{" + serverKey + "}:players";
+    }
+
     public static ServerData parse(JsonObject json) {
         return new ServerData(
                 json.get("name").getAsString(),
@@ -37,4 +71,61 @@ public record ServerData(String name, UUID uuid, String template, String status,
                 json.get("address").getAsString()
         );
     }
+
+    public static ServerData parse(Map<String, String> fields, Set<String> connectedPlayers) {
+        JsonArray players = new JsonArray(connectedPlayers.size());
+        connectedPlayers.forEach(players::add);
+
+        return new ServerData(
+                fields.get("name"),
+                UUID.fromString(fields.get("uuid")),
+                fields.get("template"),
+                fields.get("status"),
+                fields.get("serverType"),
+                Integer.parseInt(fields.get("port")),
+                Boolean.parseBoolean(fields.get("proxy")),
+                players,
+                JsonParser.parseString(fields.get("extraData")).getAsJsonObject(),
+                fields.get("nodeId"),
+                fields.get("address")
+        );
+    }
+
+    /**
+     * Reads the cached server in either cache mode, so readers keep working while the cloud switches modes.
+     *
+     * @return the server, or {@code null} if it is not cached
+     */
+    public static ServerData load(Cache cache, String name) {
+        String key = Keys.CACHE_PREFIX_SERVER + name.toUpperCase();
+        String json = cache.pending(key);
+        if (json != null) {
+            return parse(JsonParser.parseString(json).getAsJsonObject());
+        }
+
+        // read in the configured mode first, the other format only shows up while the cloud switches modes
+        if (cache.getMode() == CacheMode.HASH) {
+            try {
+                return loadHash(cache, key);
+            } catch (JedisDataException e) {
+                return loadJson(cache, key);
+            }
+        }
+
+        try {
+            return loadJson(cache, key);
+        } catch (JedisDataException e) {
+            return loadHash(cache, key);
+        }
+    }
+
+    private static ServerData loadJson(Cache cache, String key) {
+        String json = cache.get(key);
+        return json == null ? null : parse(JsonParser.parseString(json).getAsJsonObject());
+    }
+
+    private static ServerData loadHash(Cache cache, String key) {
+        Map<String, String> fields = cache.getHash(key);
+        return fields.isEmpty() ? null : parse(fields, cache.getSet(playersKey(key)));
+    }
 }
@@ -1,54 +1,310 @@
 package de.redstonecloud.api.encryption;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import de.redstonecloud.api.exception.EncryptionException;
 
 import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.security.Key;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAKey;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
-import lombok.Getter;
-
+/**
+ * RSA key pair of this process and hybrid encryption for other routes.
+ * <p>
+ * Messages are encrypted with AES-256-GCM under a session key per recipient key. The session key is wrapped
+ * once with RSA-OAEP and sent along with every message, so receivers need no handshake; they unwrap each
+ * session key once and cache it. Session keys are replaced after {@link #SESSION_ROTATION} or
+ * {@link #SESSION_MESSAGE_LIMIT} messages. Ciphers are kept per thread.
+ * <p>
+ * Envelope: {@code 0x02 | wrapped key length (u16) | wrapped key | IV (12) | ciphertext and tag},
+ * everything before the IV is authenticated as additional data. Messages encrypted with plain RSA by
+ * older versions are still decrypted.
+ * <p>
+ * The key pair can be loaded from a {@link KeyPairStore} file or generated in the background; only code that
+ * needs the local keys waits for it. After a rotation the previous private key still decrypts messages
+ * that were encrypted for it.
+ */
 public final class KeyManager {
-    @Getter private static volatile PublicKey publicKey;
+    public static final byte ENVELOPE_VERSION = 0x02;
+    public static final Duration SESSION_ROTATION = Duration.ofMinutes(30);
+    public static final long SESSION_MESSAGE_LIMIT = 1L << 30;
+
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<Cipher> AES = ThreadLocal.withInitial(() -> cipher("AES/GCM/NoPadding"));
+    private static final ThreadLocal<Cipher> OAEP = ThreadLocal.withInitial(() -> cipher("RSA/ECB/OAEPWithSHA-256AndMGF1Padding"));
+    private static final ThreadLocal<Cipher> RSA = ThreadLocal.withInitial(() -> cipher("RSA"));
+
+    private static volatile PublicKey publicKey;
     private static volatile PrivateKey privateKey;
+    private static volatile PrivateKey previousPrivateKey;
+    // set while a key pair is generated in the background
+    private static volatile CompletableFuture<Rotation> pending;
+
+    // session keys by recipient, recipients that stopped receiving messages are dropped
+    private static final Cache<PublicKey, Session> SENDING = CacheBuilder.newBuilder()
+            .maximumSize(1024)
+            .expireAfterAccess(SESSION_ROTATION)
+            .build();
+    // unwrapped session keys by their wrapped form
+    private static final Cache<ByteBuffer, SecretKey> RECEIVING = CacheBuilder.newBuilder()
+            .maximumSize(4096)
+            .expireAfterAccess(SESSION_ROTATION.multipliedBy(2))
+            .build();
 
     public static PublicKey init() {
-        try {
-            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
-            generator.initialize(4096);
+        install(KeyPairStore.generate());
+        return publicKey;
+    }
 
-            KeyPair pair = generator.generateKeyPair();
-            publicKey = pair.getPublic();
-            privateKey = pair.getPrivate();
+    /**
+     * Loads the key pair from the file if it exists and is younger than {@code maxAge}. Otherwise a new pair is
+     * generated on a background thread and saved to the file; the future completes once it is in use.
+     *
+     * @param maxAge age after which the stored pair is replaced, {@code null} or zero keeps it forever
+     */
+    public static CompletableFuture<PublicKey> init(Path file, Duration maxAge) {
+        if (KeyPairStore.isUsable(file, maxAge)) {
+            try {
+                install(KeyPairStore.load(file));
+                return CompletableFuture.completedFuture(publicKey);
+            } catch (EncryptionException e) {
+                System.out.println("[ENCRYPTION] Could not load the key pair from " + file + ", generating a new one: " + e.getMessage());
+            }
+        }
 
-            return publicKey;
-        } catch (Exception e) {
-            throw new EncryptionException(e);
+        return rotate(file).thenApply(Rotation::current);
+    }
+
+    /**
+     * Generates a new key pair on a background thread, saves it to the file and puts it in use.
+     * The current private key is kept to decrypt messages that were encrypted for it.
+     * <p>
+     * While a pair is still being generated, its rotation is returned instead of starting another one.
+     */
+    public static synchronized CompletableFuture<Rotation> rotate(Path file) {
+        CompletableFuture<Rotation> running = pending;
+        if (running != null) {
+            return running;
+        }
+
+        CompletableFuture<Rotation> future = CompletableFuture.supplyAsync(() -> {
+            KeyPair pair = KeyPairStore.generate();
+            if (file != null) {
+                KeyPairStore.save(file, pair);
+            }
+
+            return new Rotation(install(pair), pair.getPublic());
+        });
+        pending = future;
+        future.whenComplete((rotation, error) -> pending = null);
+
+        return future;
+    }
+
+    /**
+     * @return the public key of this process, waiting for a key pair that is still being generated
+     */
+    public static PublicKey getPublicKey() {
+        awaitKeys();
+        return publicKey;
+    }
+
+    /**
+     * @return the public key that was in use before, {@code null} if there was none
+     */
+    private static synchronized PublicKey install(KeyPair pair) {
+        PublicKey previous = publicKey;
+        previousPrivateKey = privateKey;
+        privateKey = pair.getPrivate();
+        publicKey = pair.getPublic();
+        return previous;
+    }
+
+    private static void awaitKeys() {
+        CompletableFuture<Rotation> running = pending;
+        if (running != null && privateKey == null) {
+            running.join();
         }
     }
 
     public static byte[] encrypt(byte[] message, PublicKey key) {
         Objects.requireNonNull(key, "Encryption keys not initialized");
-        return doFinal(message, Cipher.ENCRYPT_MODE, key);
+        Objects.requireNonNull(message, "message");
+
+        Session session = session(key);
+        byte[] iv = session.nextIv();
+        int headerLength = 3 + session.wrapped.length;
+
+        try {
+            Cipher cipher = AES.get();
+            cipher.init(Cipher.ENCRYPT_MODE, session.key, new GCMParameterSpec(TAG_BITS, iv));
+
+            byte[] envelope = new byte[headerLength + IV_LENGTH + cipher.getOutputSize(message.length)];
+            envelope[0] = ENVELOPE_VERSION;
+            envelope[1] = (byte) (session.wrapped.length >>> 8);
+            envelope[2] = (byte) session.wrapped.length;
+            System.arraycopy(session.wrapped, 0, envelope, 3, session.wrapped.length);
+            System.arraycopy(iv, 0, envelope, headerLength, IV_LENGTH);
+
+            cipher.updateAAD(envelope, 0, headerLength);
+            cipher.doFinal(message, 0, message.length, envelope, headerLength + IV_LENGTH);
+            return envelope;
+        } catch (Exception e) {
+            throw new EncryptionException(e);
+        }
     }
 
     public static byte[] decrypt(byte[] message) {
+        awaitKeys();
         Objects.requireNonNull(privateKey, "Encryption keys not initialized");
-        return doFinal(message, Cipher.DECRYPT_MODE, privateKey);
+        Objects.requireNonNull(message, "message");
+
+        if (message.length > 3 && message[0] == ENVELOPE_VERSION) {
+            try {
+                return open(message);
+            } catch (Exception e) {
+                // a plain RSA block can start with the version byte too
+                if (message.length * 8 != bitLength()) {
+                    throw new EncryptionException(e);
+                }
+            }
+        }
+
+        PrivateKey previous = previousPrivateKey;
+        try {
+            return doFinal(message, Cipher.DECRYPT_MODE, privateKey);
+        } catch (EncryptionException e) {
+            if (previous == null) {
+                throw e;
+            }
+
+            return doFinal(message, Cipher.DECRYPT_MODE, previous);
+        }
+    }
+
+    private static byte[] open(byte[] envelope) throws Exception {
+        int wrappedLength = ((envelope[1] & 0xFF) << 8) | (envelope[2] & 0xFF);
+        int headerLength = 3 + wrappedLength;
+        if (envelope.length < headerLength + IV_LENGTH + TAG_BITS / 8) {
+            throw new EncryptionException("Truncated envelope");
+        }
+
+        ByteBuffer wrapped = ByteBuffer.wrap(envelope, 3, wrappedLength).slice();
+        SecretKey key = RECEIVING.getIfPresent(wrapped);
+        if (key == null) {
+            byte[] wrappedCopy = new byte[wrappedLength];
+            System.arraycopy(envelope, 3, wrappedCopy, 0, wrappedLength);
+
+            key = new SecretKeySpec(unwrap(wrappedCopy), "AES");
+            RECEIVING.put(ByteBuffer.wrap(wrappedCopy), key);
+        }
+
+        Cipher cipher = AES.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, envelope, headerLength, IV_LENGTH));
+        cipher.updateAAD(envelope, 0, headerLength);
+        return cipher.doFinal(envelope, headerLength + IV_LENGTH, envelope.length - headerLength - IV_LENGTH);
+    }
+
+    private static byte[] unwrap(byte[] wrapped) throws Exception {
+        PrivateKey previous = previousPrivateKey;
+        Cipher oaep = OAEP.get();
+        try {
+            oaep.init(Cipher.DECRYPT_MODE, privateKey);
+            return oaep.doFinal(wrapped);
+        } catch (Exception e) {
+            if (previous == null) {
+                throw e;
+            }
+
+            // wrapped for the key pair in use before the last rotation
+            oaep.init(Cipher.DECRYPT_MODE, previous);
+            return oaep.doFinal(wrapped);
+        }
+    }
+
+    private static Session session(PublicKey key) {
+        Session session = SENDING.getIfPresent(key);
+        if (session != null && !session.expired()) {
+            return session;
+        }
+
+        // only a missing or used up session takes the lock of the entry, so one thread replaces it
+        return SENDING.asMap().compute(key, (k, current) -> current != null && !current.expired() ? current : new Session(k));
+    }
+
+    private static int bitLength() {
+        return privateKey instanceof RSAKey rsa ? rsa.getModulus().bitLength() : -1;
     }
 
     private static byte[] doFinal(byte[] message, int mode, Key key) {
         try {
-            Objects.requireNonNull(message, "message");
-            Cipher cipher = Cipher.getInstance("RSA");
+            Cipher cipher = RSA.get();
             cipher.init(mode, key);
             return cipher.doFinal(message);
         } catch (Exception e) {
             throw new EncryptionException(e);
         }
     }
-}
\ No newline at end of file
+
+    private static Cipher cipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (Exception e) {
+            throw new EncryptionException(e);
+        }
+    }
+
+    /**
+     * A replaced key pair, {@code previous} is {@code null} if no pair was in use before.
+     */
+    public record Rotation(PublicKey previous, PublicKey current) {
+    }
+
+    private static final class Session {
+        private final SecretKey key;
+        private final byte[] wrapped;
+        private final long createdAt = System.nanoTime();
+        // IVs are a random prefix per session plus a counter, unique for every message under the key
+        private final int ivPrefix = RANDOM.nextInt();
+        private final AtomicLong counter = new AtomicLong();
+
+        private Session(PublicKey recipient) {
+            try {
+                KeyGenerator generator = KeyGenerator.getInstance("AES");
+                generator.init(256, RANDOM);
+                this.key = generator.generateKey();
+
+                Cipher oaep = OAEP.get();
+                oaep.init(Cipher.ENCRYPT_MODE, recipient);
+                this.wrapped = oaep.doFinal(this.key.getEncoded());
+            } catch (Exception e) {
+                throw new EncryptionException(e);
+            }
+        }
+
+        private boolean expired() {
+            return this.counter.get() >= SESSION_MESSAGE_LIMIT || System.nanoTime() - this.createdAt >= SESSION_ROTATION.toNanos();
+        }
+
+        private byte[] nextIv() {
+            return ByteBuffer.allocate(IV_LENGTH).putInt(this.ivPrefix).putLong(this.counter.getAndIncrement()).array();
+        }
+    }
+}
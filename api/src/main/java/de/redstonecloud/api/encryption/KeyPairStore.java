@@ -0,0 +1,120 @@
+package de.redstonecloud.api.encryption;
+
+import de.redstonecloud.api.exception.EncryptionException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * RSA key pair persisted as PEM file ({@code PUBLIC KEY} and {@code PRIVATE KEY} blocks), readable only by
+ * the owner on file systems that support POSIX permissions.
+ */
+public final class KeyPairStore {
+    public static final int KEY_SIZE = 4096;
+
+    private static final String PUBLIC = "PUBLIC KEY";
+    private static final String PRIVATE = "PRIVATE KEY";
+
+    public static KeyPair generate() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(KEY_SIZE);
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new EncryptionException(e);
+        }
+    }
+
+    public static KeyPair load(Path file) {
+        try {
+            String pem = Files.readString(file, StandardCharsets.US_ASCII);
+            KeyFactory factory = KeyFactory.getInstance("RSA");
+            return new KeyPair(
+                    factory.generatePublic(new X509EncodedKeySpec(block(pem, PUBLIC))),
+                    factory.generatePrivate(new PKCS8EncodedKeySpec(block(pem, PRIVATE)))
+            );
+        } catch (EncryptionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EncryptionException(e);
+        }
+    }
+
+    /**
+     * Writes the key pair, replacing the file atomically so readers never see a partial file.
+     */
+    public static void save(Path file, KeyPair pair) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+
+            Path temp = directory.resolve(file.getFileName() + ".tmp");
+            Files.deleteIfExists(temp);
+            createPrivate(temp);
+            Files.writeString(temp, pem(PUBLIC, pair.getPublic().getEncoded()) + pem(PRIVATE, pair.getPrivate().getEncoded()),
+                    StandardCharsets.US_ASCII);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new EncryptionException(e);
+        }
+    }
+
+    /**
+     * @return whether the file exists and was written less than {@code maxAge} ago, {@code null} never expires
+     */
+    public static boolean isUsable(Path file, Duration maxAge) {
+        if (file == null || !Files.isRegularFile(file)) {
+            return false;
+        }
+
+        return maxAge == null || maxAge.isZero() || age(file).compareTo(maxAge) < 0;
+    }
+
+    public static Duration age(Path file) {
+        try {
+            return Duration.between(Files.getLastModifiedTime(file).toInstant(), Instant.now());
+        } catch (IOException e) {
+            throw new EncryptionException(e);
+        }
+    }
+
+    private static void createPrivate(Path file) throws IOException {
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+        } catch (FileAlreadyExistsException ignored) {
+        }
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, new byte[]{'\n'}).encodeToString(encoded)
+                + "\n-----END " + type + "-----\n";
+    }
+
+    private static byte[] block(String pem, String type) {
+        String begin = "-----BEGIN " + type + "-----";
+        String end = "-----END " + type + "-----";
+        int start = pem.indexOf(begin);
+        int stop = pem.indexOf(end, start);
+        if (start == -1 || stop == -1) {
+            throw new EncryptionException("Missing " + type + " in key file");
+        }
+
+        return Base64.getMimeDecoder().decode(pem.substring(start + begin.length(), stop));
+    }
+}
@@ -0,0 +1,113 @@
+package de.redstonecloud.api.encryption.cache;
+
+import de.redstonecloud.api.redis.RedisConnectionManager;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.security.PublicKey;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decoded public keys per route, read without locking.
+ * <p>
+ * Every write of a route bumps its version in Redis and announces {@code <version>:<route>} on the invalidation
+ * channel. Entries remember the version they were loaded at, an announced newer version drops them and keeps
+ * loads that started before it from being stored. Routes are only cached while the invalidation connection
+ * is subscribed, after a reconnect everything is dropped.
+ */
+public class DecodedKeyCache {
+    protected final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean subscribed = false;
+    private volatile boolean running = true;
+    private volatile Jedis connection;
+
+    public DecodedKeyCache(RedisConnectionManager connectionManager, String channel) {
+        int shard = connectionManager.getShards().shardOf(channel);
+        Thread thread = new Thread(() -> {
+            while (this.running) {
+                try (Jedis jedis = connectionManager.connect(shard)) {
+                    this.connection = jedis;
+                    jedis.subscribe(new Invalidations(), channel);
+                } catch (Exception e) {
+                    if (!this.running) {
+                        break;
+                    }
+                } finally {
+                    // announcements may have been missed while the connection was down
+                    this.subscribed = false;
+                    this.entries.clear();
+                }
+
+                try {
+                    Thread.sleep(1000L); // backoff before reconnect
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }, "Redis-Key-Invalidation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the cached keys of the route, or {@code null} if they have to be loaded
+     */
+    public Collection<PublicKey> get(String route) {
+        Entry entry = this.entries.get(route);
+        return entry != null ? entry.keys : null;
+    }
+
+    /**
+     * Caches keys loaded at the given version, unless a newer version was announced meanwhile.
+     */
+    public void store(String route, long version, Collection<PublicKey> keys) {
+        if (!this.subscribed) {
+            return;
+        }
+
+        this.entries.compute(route, (r, entry) -> entry == null || entry.version <= version ? new Entry(version, keys) : entry);
+    }
+
+    /**
+     * Drops the keys of the route if they are older than the version.
+     */
+    public void invalidate(String route, long version) {
+        // keeps the version without keys, so older loads cannot store theirs
+        this.entries.compute(route, (r, entry) -> entry == null || entry.version < version ? new Entry(version, null) : entry);
+    }
+
+    public void shutdown() {
+        this.running = false;
+        Jedis connection = this.connection;
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    protected record Entry(long version, Collection<PublicKey> keys) {
+    }
+
+    private class Invalidations extends JedisPubSub {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            DecodedKeyCache.this.entries.clear();
+            DecodedKeyCache.this.subscribed = true;
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+            int separator = message.indexOf(':');
+            if (separator == -1) {
+                return;
+            }
+
+            try {
+                DecodedKeyCache.this.invalidate(message.substring(separator + 1), Long.parseLong(message.substring(0, separator)));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+}
@@ -1,68 +1,129 @@
 package de.redstonecloud.api.encryption.cache;
 
+import de.redstonecloud.api.redis.RedisConnectionManager;
 import de.redstonecloud.api.redis.cache.Cache;
 import de.redstonecloud.api.util.B64;
+import de.redstonecloud.api.util.Keys;
 import it.unimi.dsi.fastutil.objects.ObjectArraySet;
 import lombok.Getter;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Transaction;
 
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Public keys per route, stored as Base64 list at {@code encryption:<route>}.
+ * Decoded keys are cached locally by the {@link DecodedKeyCache} and refreshed when any instance changes them.
+ */
 public class KeyCache extends Cache {
+    public static final String INVALIDATION_CHANNEL = Keys.CACHE_PREFIX_ENCRYPTION + "invalidate";
+
+    protected static DecodedKeyCache singletonDecoded;
 
     public static class Holder {
         @Getter private static KeyCache cache;
     }
 
+    protected DecodedKeyCache decoded;
+
     public KeyCache() {
         super();
 
+        synchronized (KeyCache.class) {
+            if (KeyCache.singletonDecoded == null) {
+                KeyCache.singletonDecoded = new DecodedKeyCache(RedisConnectionManager.get(), INVALIDATION_CHANNEL);
+            }
+        }
+
+        this.decoded = KeyCache.singletonDecoded;
         Holder.cache = this;
     }
 
-    public void addKey(String route, PublicKey key) {
-        List<String> routeList = this.getList(route);
-        if (routeList == null) {
-            routeList = new ArrayList<>();
-        }
+    public static String listKey(String route) {
+        return Keys.CACHE_PREFIX_ENCRYPTION + route;
+    }
 
-        byte[] keyBytes = key.getEncoded();
-        routeList.add(B64.encode(keyBytes));
-        this.setList("encryption:" + route, routeList);
+    // tagged with the list key, so both live on the same shard
+    public static String versionKey(String route) {
+        return "{" + listKey(route) + "}:version";
     }
 
-    public void removeKey(String route, PublicKey key) {
-        List<String> routeList = this.getList("encryption:" + route);
-        if (routeList == null) {
-            return;
-        }
+    /**
+     * Adds the key to the route, a key that is already stored is moved to the end instead of duplicated.
+     */
+    public void addKey(String route, PublicKey key) {
+        this.change(route, B64.encode(key.getEncoded()), true);
+    }
 
-        byte[] keyBytes = key.getEncoded();
-        if (routeList.removeIf(k -> k.equals(B64.encode(keyBytes)))) {
-            this.setList("encryption:" + route, routeList);
-        }
+    public void removeKey(String route, PublicKey key) {
+        this.change(route, B64.encode(key.getEncoded()), false);
     }
 
+    /**
+     * @return the decoded keys of the route, read-only and shared between callers
+     */
     public Collection<PublicKey> getKeys(String route) {
-        List<String> stringKeys = this.getList(route);
+        Collection<PublicKey> cached = this.decoded.get(route);
+        if (cached != null) {
+            return cached;
+        }
+
+        String listKey = listKey(route);
+        Response<String> version;
+        Response<List<String>> stringKeys;
+        try (Jedis jedis = this.pool(listKey).getResource()) {
+            // version first: a change in between leaves an old version on new keys, which the announcement drops
+            Pipeline pipeline = jedis.pipelined();
+            version = pipeline.get(versionKey(route));
+            stringKeys = pipeline.lrange(listKey, 0, -1);
+            pipeline.sync();
+        }
 
         ObjectArraySet<PublicKey> keys = new ObjectArraySet<>();
-        for (String stringKey : stringKeys) {
-            try {
-                byte[] keyBytes = B64.decode(stringKey);
-                KeyFactory factory = KeyFactory.getInstance("RSA");
-                X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-                PublicKey key = factory.generatePublic(spec);
-
-                keys.add(key);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        try {
+            KeyFactory factory = KeyFactory.getInstance("RSA");
+            for (String stringKey : stringKeys.get()) {
+                keys.add(factory.generatePublic(new X509EncodedKeySpec(B64.decode(stringKey))));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        Collection<PublicKey> loaded = Collections.unmodifiableCollection(keys);
+        this.decoded.store(route, version.get() != null ? Long.parseLong(version.get()) : 0, loaded);
+        return loaded;
+    }
+
+    protected void change(String route, String encodedKey, boolean add) {
+        String listKey = listKey(route);
+        Response<Long> removed;
+        Response<Long> version;
+        try (Jedis jedis = this.pool(listKey).getResource()) {
+            Transaction transaction = jedis.multi();
+            removed = transaction.lrem(listKey, 0, encodedKey);
+            if (add) {
+                transaction.rpush(listKey, encodedKey);
             }
+            version = transaction.incr(versionKey(route));
+            transaction.exec();
+        } finally {
+            this.invalidateNear(listKey);
+        }
+
+        if (!add && removed.get() == 0) {
+            return;
+        }
+
+        this.decoded.invalidate(route, version.get());
+        try (Jedis jedis = this.pool(INVALIDATION_CHANNEL).getResource()) {
+            jedis.publish(INVALIDATION_CHANNEL, version.get() + ":" + route);
         }
-        return keys;
     }
 }
@@ -4,4 +4,8 @@ public class EncryptionException extends RuntimeException {
     public EncryptionException(Throwable throwable) {
         super(throwable);
     }
+
+    public EncryptionException(String message) {
+        super(message);
+    }
 }
@@ -0,0 +1,274 @@
+package de.redstonecloud.api.redis;
+
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.DefaultJedisSocketFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisSocketFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Owns the Redis connections of this process: one pool per client and shard, and the dedicated connections
+ * of subscribers and blocking readers, which never go through a pool. Shards with a Unix socket path
+ * are connected through it instead of TCP.
+ * <p>
+ * Pooled connections are not checked on borrow or return. The pool evictor validates idle connections in the
+ * background instead, a connection that fails while borrowed is dropped when it is returned.
+ * A sizer looks at every pool each five seconds: while threads wait for
+ * connections the limit grows by half up to {@link PoolSize#maxTotal()}, after staying below a quarter of
+ * the limit for a minute it shrinks by half down to {@link PoolSize#initialTotal()}.
+ */
+@Getter
+public class RedisConnectionManager {
+    private static final long SIZING_INTERVAL_SECONDS = 5;
+    // sizer runs a pool has to stay mostly unused before it shrinks
+    private static final int SHRINK_AFTER = 12;
+
+    private static RedisConnectionManager instance;
+
+    /**
+     * @return the connection manager of this process, connecting to the shards configured by the environment
+     */
+    public static synchronized RedisConnectionManager get() {
+        if (instance == null) {
+            instance = new RedisConnectionManager(RedisShards.fromEnvironment());
+        }
+
+        return instance;
+    }
+
+    private final RedisShards shards;
+    private final JedisClientConfig clientConfig;
+    private final Map<String, ClientPools> clients = new ConcurrentHashMap<>();
+    private final Set<Jedis> dedicated = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService sizer;
+    private volatile boolean running = true;
+
+    public RedisConnectionManager(RedisShards shards) {
+        this.shards = shards;
+        this.clientConfig = DefaultJedisClientConfig.builder()
+                .database(shards.getDb())
+                .timeoutMillis(0)
+                .build();
+
+        this.sizer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Redis-Pool-Sizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sizer.scheduleWithFixedDelay(this::resize, SIZING_INTERVAL_SECONDS, SIZING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the pools of the client, one per shard, creating them on first use.
+     * Later calls for the same client return the same pools, whatever size they pass.
+     */
+    public JedisPool[] pools(String client, PoolSize size) {
+        Preconditions.checkState(this.running, "Connection manager is shut down");
+        return this.clients.computeIfAbsent(client, name -> new ClientPools(name, size)).pools;
+    }
+
+    /**
+     * Opens a connection to the shard that is not part of any pool, for subscriptions and blocking reads.
+     * It is closed on {@link #shutdown()} if its owner did not close it before.
+     */
+    public Jedis connect(int shard) {
+        Preconditions.checkState(this.running, "Connection manager is shut down");
+        Jedis jedis = new Dedicated(shard);
+        this.dedicated.add(jedis);
+        return jedis;
+    }
+
+    /**
+     * @return the number of open connections created by {@link #connect(int)}
+     */
+    public int getDedicatedConnections() {
+        return this.dedicated.size();
+    }
+
+    public List<RedisPoolStats> getStats() {
+        List<RedisPoolStats> stats = new ArrayList<>();
+        for (ClientPools client : this.clients.values()) {
+            for (int shard = 0; shard < client.pools.length; shard++) {
+                JedisPool pool = client.pools[shard];
+                stats.add(new RedisPoolStats(
+                        client.name,
+                        shard,
+                        pool.getNumActive(),
+                        pool.getNumIdle(),
+                        pool.getNumWaiters(),
+                        pool.getMaxTotal(),
+                        pool.getMeanBorrowWaitDuration().toNanos() / 1000,
+                        pool.getMaxBorrowWaitDuration().toNanos() / 1000,
+                        pool.getBorrowedCount(),
+                        pool.getCreatedCount(),
+                        pool.getDestroyedCount(),
+                        client.resized[shard].sum()
+                ));
+            }
+        }
+
+        return stats;
+    }
+
+    /**
+     * Closes the pools of the client. Connections still borrowed are closed when they are returned.
+     */
+    public void close(String client) {
+        ClientPools pools = this.clients.remove(client);
+        if (pools != null) {
+            for (JedisPool pool : pools.pools) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Closes all pools and dedicated connections.
+     */
+    public void shutdown() {
+        this.running = false;
+        this.sizer.shutdownNow();
+
+        for (String client : List.copyOf(this.clients.keySet())) {
+            this.close(client);
+        }
+
+        for (Jedis jedis : List.copyOf(this.dedicated)) {
+            jedis.close();
+        }
+    }
+
+    private void resize() {
+        for (ClientPools client : this.clients.values()) {
+            for (int shard = 0; shard < client.pools.length; shard++) {
+                try {
+                    client.resize(shard);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Connection limits of the pools of one client.
+     *
+     * @param minIdle      connections kept open even when unused
+     * @param initialTotal limit the pools start with and never shrink below
+     * @param maxTotal     limit the pools never grow beyond
+     */
+    public record PoolSize(int minIdle, int initialTotal, int maxTotal) {
+        public PoolSize {
+            Preconditions.checkArgument(minIdle <= initialTotal && initialTotal <= maxTotal, "Expected minIdle <= initialTotal <= maxTotal");
+        }
+    }
+
+    private final class ClientPools {
+        private final String name;
+        private final PoolSize size;
+        private final JedisPool[] pools;
+        private final int[] unusedRuns;
+        private final LongAdder[] resized;
+
+        private ClientPools(String name, PoolSize size) {
+            this.name = name;
+            this.size = size;
+            this.pools = new JedisPool[shards.size()];
+            this.unusedRuns = new int[this.pools.length];
+            this.resized = new LongAdder[this.pools.length];
+
+            for (int shard = 0; shard < this.pools.length; shard++) {
+                JedisPoolConfig config = new JedisPoolConfig();
+                config.setMinIdle(size.minIdle());
+                config.setMaxTotal(size.initialTotal());
+                config.setMaxIdle(maxIdle(size.initialTotal()));
+                config.setBlockWhenExhausted(true);
+                config.setMaxWait(Duration.ofSeconds(1));
+                config.setTestOnBorrow(false);
+                config.setTestOnReturn(false);
+                config.setTestWhileIdle(true);
+                config.setTimeBetweenEvictionRuns(Duration.ofSeconds(30));
+                config.setJmxNamePrefix("redis-" + name + "-" + shard);
+
+                this.pools[shard] = new JedisPool(config, socketFactory(shard), clientConfig);
+                this.resized[shard] = new LongAdder();
+            }
+        }
+
+        private void resize(int shard) {
+            JedisPool pool = this.pools[shard];
+            int limit = pool.getMaxTotal();
+
+            if (pool.getNumWaiters() > 0 || pool.getNumActive() >= limit) {
+                this.unusedRuns[shard] = 0;
+                if (limit < this.size.maxTotal()) {
+                    this.limit(shard, Math.min(this.size.maxTotal(), limit + Math.max(1, limit / 2)));
+                }
+                return;
+            }
+
+            if (pool.getNumActive() >= limit / 4) {
+                this.unusedRuns[shard] = 0;
+                return;
+            }
+
+            if (++this.unusedRuns[shard] >= SHRINK_AFTER && limit > this.size.initialTotal()) {
+                this.unusedRuns[shard] = 0;
+                this.limit(shard, Math.max(this.size.initialTotal(), limit / 2));
+            }
+        }
+
+        private void limit(int shard, int limit) {
+            JedisPool pool = this.pools[shard];
+            // raise the idle limit after and lower it before the total, so it never exceeds it
+            if (limit > pool.getMaxTotal()) {
+                pool.setMaxTotal(limit);
+                pool.setMaxIdle(maxIdle(limit));
+            } else {
+                pool.setMaxIdle(maxIdle(limit));
+                pool.setMaxTotal(limit);
+            }
+
+            this.resized[shard].increment();
+        }
+
+        private int maxIdle(int limit) {
+            return Math.max(this.size.minIdle(), limit / 2);
+        }
+    }
+
+    private JedisSocketFactory socketFactory(int shard) {
+        String socket = this.shards.socket(shard);
+        return socket != null
+                ? new UnixSocketFactory(Path.of(socket))
+                : new DefaultJedisSocketFactory(this.shards.endpoint(shard), this.clientConfig);
+    }
+
+    private final class Dedicated extends Jedis {
+        private Dedicated(int shard) {
+            super(socketFactory(shard), clientConfig);
+        }
+
+        @Override
+        public void close() {
+            dedicated.remove(this);
+            super.close();
+        }
+    }
+}
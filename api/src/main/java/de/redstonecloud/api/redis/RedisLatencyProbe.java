@@ -0,0 +1,58 @@
+package de.redstonecloud.api.redis;
+
+import de.redstonecloud.api.redis.broker.metrics.LatencyHistogram;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+
+import java.nio.file.Path;
+
+/**
+ * Measures the round trip of {@code PING} to a Redis shard over TCP and, if one is configured,
+ * over its Unix domain socket, to see what the socket saves on this host.
+ */
+public final class RedisLatencyProbe {
+    private static final int WARMUP = 1_000;
+
+    /**
+     * @return the round trip over TCP and over the Unix socket, {@code unix} is {@code null} without one
+     */
+    public static Result measure(RedisShards shards, int shard, int samples) {
+        JedisClientConfig config = DefaultJedisClientConfig.builder().database(shards.getDb()).build();
+        HostAndPort endpoint = shards.endpoint(shard);
+        String socket = shards.socket(shard);
+
+        LatencyHistogram tcp;
+        try (Jedis jedis = new Jedis(endpoint, config)) {
+            tcp = measure(jedis, samples);
+        }
+
+        LatencyHistogram unix = null;
+        if (socket != null) {
+            try (Jedis jedis = new Jedis(new UnixSocketFactory(Path.of(socket)), config)) {
+                unix = measure(jedis, samples);
+            }
+        }
+
+        return new Result(tcp.snapshot(), unix != null ? unix.snapshot() : null);
+    }
+
+    private static LatencyHistogram measure(Jedis jedis, int samples) {
+        for (int i = 0; i < WARMUP; i++) {
+            jedis.ping();
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            jedis.ping();
+            histogram.record(System.nanoTime() - start);
+        }
+
+        return histogram;
+    }
+
+    public record Result(LatencyHistogram.HistogramSnapshot tcp, LatencyHistogram.HistogramSnapshot unix) {
+    }
+}
@@ -0,0 +1,22 @@
+package de.redstonecloud.api.redis;
+
+/**
+ * Point-in-time statistics of one connection pool of the {@link RedisConnectionManager}.
+ *
+ * @param client          name of the client the pool belongs to
+ * @param shard           Redis shard the pool connects to
+ * @param active          connections currently borrowed
+ * @param idle            connections waiting in the pool
+ * @param waiters         threads currently waiting for a connection
+ * @param maxTotal        current connection limit of the pool
+ * @param meanBorrowWaitMicros mean time the last borrows waited for a connection
+ * @param maxBorrowWaitMicros  longest time a borrow waited for a connection
+ * @param borrowed        connections borrowed since the pool was created
+ * @param created         connections opened since the pool was created
+ * @param destroyed       connections closed since the pool was created, including failed validations
+ * @param resized         times the sizer changed the limit of the pool
+ */
+public record RedisPoolStats(String client, int shard, int active, int idle, int waiters, int maxTotal,
+                             long meanBorrowWaitMicros, long maxBorrowWaitMicros,
+                             long borrowed, long created, long destroyed, long resized) {
+}
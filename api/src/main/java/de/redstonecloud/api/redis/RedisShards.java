@@ -0,0 +1,120 @@
+package de.redstonecloud.api.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import de.redstonecloud.api.util.Keys;
+import lombok.Getter;
+import redis.clients.jedis.HostAndPort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Redis endpoints routes and cache keys are spread across.
+ * <p>
+ * Keys are mapped to a shard by consistent hashing, so adding a shard only moves about {@code 1/n} of them.
+ * Like in Redis Cluster, only the part between the first {@code {}} braces of a key is hashed if present,
+ * which keeps related keys on the same shard.
+ * <p>
+ * Shards running on the same host can also be given a Unix domain socket, which is used instead of TCP.
+ */
+@Getter
+public class RedisShards {
+    private static final HashFunction HASH = Hashing.murmur3_32_fixed();
+
+    private final List<HostAndPort> endpoints;
+    // socket path per shard, null connects over TCP
+    private final String[] sockets;
+    private final int db;
+
+    public RedisShards(List<HostAndPort> endpoints, int db) {
+        this(endpoints, List.of(), db);
+    }
+
+    /**
+     * @param sockets Unix socket paths in shard order, missing or empty entries connect over TCP
+     */
+    public RedisShards(List<HostAndPort> endpoints, List<String> sockets, int db) {
+        Preconditions.checkArgument(!endpoints.isEmpty(), "At least one Redis endpoint is required");
+        Preconditions.checkArgument(sockets.size() <= endpoints.size(), "More sockets than Redis endpoints");
+        this.endpoints = List.copyOf(endpoints);
+        this.sockets = new String[endpoints.size()];
+        for (int i = 0; i < sockets.size(); i++) {
+            String socket = sockets.get(i);
+            this.sockets[i] = socket != null && !socket.isBlank() ? socket.trim() : null;
+        }
+        this.db = db;
+    }
+
+    /**
+     * Reads the shard list from {@code REDIS_SHARDS} ({@code host:port,host:port}),
+     * falling back to the single {@code REDIS_IP}/{@code REDIS_PORT} endpoint.
+     * {@code REDIS_SOCKET} optionally lists their Unix socket paths in the same order.
+     */
+    public static RedisShards fromEnvironment() {
+        int db = Integer.parseInt(read(Keys.ENV_REDIS_DB, Keys.PROPERTY_REDIS_DB));
+
+        String socket = read(Keys.ENV_REDIS_SOCKET, Keys.PROPERTY_REDIS_SOCKET);
+        List<String> sockets = socket != null && !socket.isBlank() ? Arrays.asList(socket.split(",", -1)) : List.of();
+
+        String shards = read(Keys.ENV_REDIS_SHARDS, Keys.PROPERTY_REDIS_SHARDS);
+        if (shards == null || shards.isBlank()) {
+            String address = read(Keys.ENV_REDIS_IP, Keys.PROPERTY_REDIS_IP);
+            int port = Integer.parseInt(read(Keys.ENV_REDIS_PORT, Keys.PROPERTY_REDIS_PORT));
+            return new RedisShards(List.of(new HostAndPort(address, port)), sockets.isEmpty() ? sockets : sockets.subList(0, 1), db);
+        }
+
+        return new RedisShards(parse(shards), sockets, db);
+    }
+
+    public static List<HostAndPort> parse(String shards) {
+        return Arrays.stream(shards.split(","))
+                .map(String::trim)
+                .filter(shard -> !shard.isEmpty())
+                .map(HostAndPort::from)
+                .toList();
+    }
+
+    public static String format(List<HostAndPort> endpoints) {
+        return String.join(",", endpoints.stream().map(HostAndPort::toString).toList());
+    }
+
+    public int size() {
+        return this.endpoints.size();
+    }
+
+    public HostAndPort endpoint(int shard) {
+        return this.endpoints.get(shard);
+    }
+
+    /**
+     * @return the Unix socket path of the shard, or {@code null} if it is reached over TCP
+     */
+    public String socket(int shard) {
+        return this.sockets[shard];
+    }
+
+    public int shardOf(String key) {
+        if (this.endpoints.size() == 1) {
+            return 0;
+        }
+
+        return Hashing.consistentHash(HASH.hashString(hashTag(key), StandardCharsets.UTF_8), this.endpoints.size());
+    }
+
+    private static String hashTag(String key) {
+        int start = key.indexOf('{');
+        if (start == -1) {
+            return key;
+        }
+
+        int end = key.indexOf('}', start + 1);
+        return end > start + 1 ? key.substring(start + 1, end) : key;
+    }
+
+    private static String read(String env, String property) {
+        return System.getenv(env) != null ? System.getenv(env) : System.getProperty(property);
+    }
+}
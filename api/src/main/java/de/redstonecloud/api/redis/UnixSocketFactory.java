@@ -0,0 +1,148 @@
+package de.redstonecloud.api.redis;
+
+import redis.clients.jedis.JedisSocketFactory;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Connects Jedis to a Redis server through a Unix domain socket instead of TCP.
+ * <p>
+ * Jedis works on {@link Socket}s, so the {@link SocketChannel} is exposed through a minimal socket that only
+ * supports what Jedis uses. Read timeouts are not enforced, the {@link RedisConnectionManager} configures
+ * none for its connections either.
+ */
+public class UnixSocketFactory implements JedisSocketFactory {
+    private final UnixDomainSocketAddress address;
+
+    public UnixSocketFactory(Path path) {
+        this.address = UnixDomainSocketAddress.of(path);
+    }
+
+    @Override
+    public Socket createSocket() throws JedisConnectionException {
+        try {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(this.address);
+            return new ChannelSocket(channel, this.address);
+        } catch (IOException e) {
+            throw new JedisConnectionException("Failed to connect to " + this.address, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "unix:" + this.address.getPath();
+    }
+
+    private static final class ChannelSocket extends Socket {
+        private final SocketChannel channel;
+        private final SocketAddress address;
+        private final InputStream input;
+        private final OutputStream output;
+        private int soTimeout;
+
+        private ChannelSocket(SocketChannel channel, SocketAddress address) throws IOException {
+            super((java.net.SocketImpl) null);
+            this.channel = channel;
+            this.address = address;
+
+            // reads and writes lock separately, so a subscriber can be written to while it waits for messages
+            this.input = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] single = new byte[1];
+                    return this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return len == 0 ? 0 : channel.read(ByteBuffer.wrap(b, off, len));
+                }
+            };
+            this.output = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    this.write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return this.input;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return this.output;
+        }
+
+        @Override
+        public SocketAddress getRemoteSocketAddress() {
+            return this.address;
+        }
+
+        @Override
+        public SocketAddress getLocalSocketAddress() {
+            return null;
+        }
+
+        @Override
+        public int getSoTimeout() {
+            return this.soTimeout;
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) {
+            this.soTimeout = timeout;
+        }
+
+        @Override
+        public boolean isBound() {
+            return this.channel.isOpen();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return this.channel.isConnected();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return !this.channel.isOpen();
+        }
+
+        @Override
+        public boolean isInputShutdown() {
+            return !this.channel.isOpen();
+        }
+
+        @Override
+        public boolean isOutputShutdown() {
+            return !this.channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+}
@@ -2,31 +2,53 @@ package de.redstonecloud.api.redis.broker;
 
 import com.google.common.base.Preconditions;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
+import de.redstonecloud.api.redis.RedisConnectionManager;
+import de.redstonecloud.api.redis.RedisShards;
+import de.redstonecloud.api.redis.broker.codec.BrokerCodec;
+import de.redstonecloud.api.redis.broker.dispatch.ConsumerRegistry;
+import de.redstonecloud.api.redis.broker.dispatch.Dispatcher;
 import de.redstonecloud.api.redis.broker.message.Message;
+import de.redstonecloud.api.redis.broker.metrics.BrokerMetrics;
+import de.redstonecloud.api.redis.broker.metrics.RateLimitedLog;
 import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.redis.broker.packet.PacketPriority;
 import de.redstonecloud.api.redis.broker.packet.PacketRegistry;
-import de.redstonecloud.api.util.Keys;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import de.redstonecloud.api.redis.broker.publish.PublishPipeline;
+import de.redstonecloud.api.redis.broker.request.PendingResponse;
+import de.redstonecloud.api.redis.broker.request.PendingResponseMap;
+import de.redstonecloud.api.redis.broker.request.ScatterGather;
+import de.redstonecloud.api.redis.broker.request.ScatterResult;
+import de.redstonecloud.api.redis.broker.transport.BrokerTransport;
+import de.redstonecloud.api.redis.broker.transport.PubSubTransport;
+import de.redstonecloud.api.redis.broker.transport.StreamTransport;
+import de.redstonecloud.api.redis.broker.transport.TransportType;
+import io.netty.util.HashedWheelTimer;
 import lombok.Getter;
-import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
-import redis.clients.jedis.JedisPubSub;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Getter
 public class Broker {
     public static final Gson GSON = new Gson();
+    public static final String CLIENT = "broker";
+    public static final RedisConnectionManager.PoolSize POOL_SIZE = new RedisConnectionManager.PoolSize(4, 16, 64);
 
     protected static Broker instance;
 
@@ -35,178 +57,431 @@ public class Broker {
     }
 
     protected PacketRegistry packetRegistry;
+    protected BrokerOptions options;
+    protected BrokerCodec codec;
 
     protected String mainRoute;
-    protected Jedis subscriber;
-    protected JedisPool pool;
+    protected Set<String> routes;
+    protected final long instanceId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
 
-    protected Object2ObjectOpenHashMap<String, ObjectArrayList<Consumer<Packet>>> packetConsumers;
-    protected Int2ObjectOpenHashMap<ResponseContainer<?>> pendingPacketResponses;
+    protected RedisConnectionManager connectionManager;
+    protected RedisShards shards;
+    protected JedisPool[] pools;
+    protected Map<TransportType, BrokerTransport> transports;
 
-    protected Object2ObjectOpenHashMap<String, ObjectArrayList<Consumer<Message>>> messageConsumers;
-    protected Int2ObjectOpenHashMap<Consumer<Message>> pendingMessageResponses;
+    protected ConsumerRegistry<Packet> packetConsumers;
+    protected ConsumerRegistry<Message> messageConsumers;
 
-    private final ExecutorService publishExecutor = Executors.newFixedThreadPool(8);
-    private BrokerJedisPubSub pubsub;
-    private volatile boolean running = false;
+    protected PendingResponseMap pendingResponses;
+    protected HashedWheelTimer timeoutTimer;
+    protected final AtomicInteger correlationIds = new AtomicInteger(ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE / 2));
+
+    protected PublishPipeline publisher;
+    protected Dispatcher dispatcher;
+    protected final BrokerMetrics metrics = new BrokerMetrics();
+    // every event is counted in the metrics, the logs only show a sample
+    protected final RateLimitedLog publishErrorLog = new RateLimitedLog(Broker.class, Duration.ofMinutes(1));
+    protected final RateLimitedLog receiveErrorLog = new RateLimitedLog(Broker.class, Duration.ofMinutes(1));
 
     public Broker(String mainRoute, PacketRegistry packetRegistry, String... routes) {
+        this(mainRoute, packetRegistry, BrokerOptions.fromEnvironment(), routes);
+    }
+
+    public Broker(String mainRoute, PacketRegistry packetRegistry, BrokerOptions options, String... routes) {
         Preconditions.checkArgument(instance == null, "Broker already initialized");
         Preconditions.checkArgument(routes.length > 0, "Routes should not be empty");
         instance = this;
 
         this.mainRoute = mainRoute;
+        this.routes = Arrays.stream(routes).map(String::toLowerCase).collect(Collectors.toUnmodifiableSet());
 
         this.packetRegistry = packetRegistry;
+        this.options = options;
+        this.codec = new BrokerCodec(packetRegistry, options, this.instanceId);
 
-        this.packetConsumers = new Object2ObjectOpenHashMap<>();
-        this.pendingPacketResponses = new Int2ObjectOpenHashMap<>();
+        this.packetConsumers = new ConsumerRegistry<>();
+        this.messageConsumers = new ConsumerRegistry<>();
 
-        this.messageConsumers = new Object2ObjectOpenHashMap<>();
-        this.pendingMessageResponses = new Int2ObjectOpenHashMap<>();
+        this.pendingResponses = new PendingResponseMap(options.getDispatchPartitions() * 4);
+        this.timeoutTimer = new HashedWheelTimer(runnable -> {
+            Thread thread = new Thread(runnable, "Broker-Timeout");
+            thread.setDaemon(true);
+            return thread;
+        }, 10, TimeUnit.MILLISECONDS, 512);
+
+        this.dispatcher = new Dispatcher(options.getDispatchPartitions());
 
         initJedis(routes);
     }
 
     private void initJedis(String... routes) {
-        String address = System.getenv(Keys.ENV_REDIS_IP) != null ? System.getenv(Keys.ENV_REDIS_IP) : System.getProperty(Keys.PROPERTY_REDIS_IP);
-        int port = Integer.parseInt(System.getenv(Keys.ENV_REDIS_PORT) != null ? System.getenv(Keys.ENV_REDIS_PORT) : System.getProperty(Keys.PROPERTY_REDIS_PORT));
-        int db = Integer.parseInt(System.getenv(Keys.ENV_REDIS_DB) != null ? System.getenv(Keys.ENV_REDIS_DB) : System.getProperty(Keys.PROPERTY_REDIS_DB));
-
-        JedisPoolConfig config = new JedisPoolConfig();
-        config.setMinIdle(4);
-        config.setMaxIdle(8);
-        config.setMaxTotal(16);
-        config.setBlockWhenExhausted(true);
-        config.setTestOnBorrow(true);
-        config.setMaxWait(Duration.ofSeconds(1));
-        config.setTestOnReturn(true);
-
-        this.pool = new JedisPool(config, address, port, 0, null, db);
-
-        running = true;
-        pubsub = new BrokerJedisPubSub();
-        new Thread(() -> {
-            while (running) {
-                try (Jedis jedis = new Jedis(address, port, 0)) {
-                    jedis.select(db);
-
-                    this.subscriber = jedis;
-                    jedis.subscribe(pubsub, routes);
-                } catch (Exception e) {
-                    if (!running) {
-                        break;
-                    }
-
-                    try {
-                        Thread.sleep(1000L); // backoff before reconnect
-                    } catch (InterruptedException ignored) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-            }
-        }, "Redis-Subscriber").start();
+        this.connectionManager = RedisConnectionManager.get();
+        this.shards = this.connectionManager.getShards();
+        this.pools = this.connectionManager.pools(CLIENT, POOL_SIZE);
+        this.publisher = new PublishPipeline(
+                this.pools,
+                this.options.getPublishBatchSize(),
+                this.options.getPublishFlushInterval(),
+                this.options.getPublishQueueCapacity(),
+                this.options.getPublishBackpressure(),
+                this.options.getPublishBlockTimeout()
+        );
+
+        this.transports = new EnumMap<>(TransportType.class);
+        this.transports.put(TransportType.PUBSUB, new PubSubTransport(this.connectionManager));
+        this.transports.put(TransportType.STREAM, new StreamTransport(this.connectionManager, this.mainRoute,
+                this.options.getStreamMaxLength(), this.options.getStreamBatchSize(), this.options.getStreamBlockTimeout()));
+
+        // every route is subscribed through pub/sub, so senders that do not use streams for it yet still reach us
+        this.transports.get(TransportType.PUBSUB).start(routes, this::receive);
+
+        String[] streamRoutes = Arrays.stream(routes)
+                .filter(route -> this.options.transportOf(route) == TransportType.STREAM)
+                .toArray(String[]::new);
+        if (streamRoutes.length > 0) {
+            this.transports.get(TransportType.STREAM).start(streamRoutes, this::receive);
+        }
     }
 
+    /**
+     * Sends the packet to its route. Packets for a route of this broker are handed to its listeners
+     * directly, as the same object, see {@link BrokerOptions#isLoopback()}.
+     */
     public void publish(Packet packet) {
-        publishExecutor.submit(() -> {
-            try (Jedis publisher = this.pool.getResource()) {
-                publisher.publish(packet.getTo().toLowerCase(), packet.finalDocument().toString());
-            } catch (Exception e) {
-                e.printStackTrace();
+        String route = packet.getTo().toLowerCase();
+        this.metrics.out(route, packet.packetId());
+
+        boolean local = this.isLocal(route);
+        if (local) {
+            this.dispatch(route, packet);
+
+            if (!this.options.isLoopbackMirror()) {
+                return;
             }
-        });
+        }
+
+        try {
+            this.publisher.submit(this.transportOf(route), this.shards.shardOf(route), route.getBytes(StandardCharsets.UTF_8),
+                    this.codec.encode(packet, local), this.conflationKey(route, packet));
+        } catch (Exception e) {
+            this.metrics.getPublishErrors().increment();
+            this.publishErrorLog.warn(() -> "Could not publish to " + route, e);
+        }
     }
 
     public void publish(Message message) {
-        publishExecutor.submit(() -> {
-            try (Jedis publisher = this.pool.getResource()) {
-                publisher.publish(message.getTo().toLowerCase(), message.toJson());
-            } catch (Exception e) {
-                e.printStackTrace();
+        String route = message.getTo().toLowerCase();
+        this.metrics.out(route, -1);
+
+        boolean local = this.isLocal(route);
+        if (local) {
+            this.dispatch(route, message);
+
+            if (!this.options.isLoopbackMirror()) {
+                return;
             }
-        });
+        }
+
+        try {
+            this.publisher.submit(this.transportOf(route), this.shards.shardOf(route), route.getBytes(StandardCharsets.UTF_8), this.codec.encode(message, local));
+        } catch (Exception e) {
+            this.metrics.getPublishErrors().increment();
+            this.publishErrorLog.warn(() -> "Could not publish to " + route, e);
+        }
+    }
+
+    private String conflationKey(String route, Packet packet) {
+        if (!this.options.isPublishConflation()) {
+            return null;
+        }
+
+        String key = packet.conflationKey();
+        // a replaced request would never be answered
+        if (key == null || this.pendingResponses.get(packet.getSessionId()) != null) {
+            return null;
+        }
+
+        return route + '/' + packet.packetId() + '/' + key;
     }
 
+    public boolean isLocal(String route) {
+        return this.options.isLoopback() && this.routes.contains(route);
+    }
+
+    public BrokerTransport transportOf(String route) {
+        return this.transports.get(this.options.transportOf(route));
+    }
+
+    /**
+     * Registers a packet listener for the channel, {@code ""} listens to every channel.
+     */
     public void listen(String channel, Consumer<Packet> callback) {
-        this.packetConsumers.computeIfAbsent(channel, k -> new ObjectArrayList<>()).add(callback);
+        this.packetConsumers.add(channel, callback);
     }
 
     public void listenM(String channel, Consumer<Message> callback) {
-        this.messageConsumers.computeIfAbsent(channel, k -> new ObjectArrayList<>()).add(callback);
+        this.messageConsumers.add(channel, callback);
+    }
+
+    /**
+     * @return false if the callback was not registered for the channel
+     */
+    public boolean unlisten(String channel, Consumer<Packet> callback) {
+        return this.packetConsumers.remove(channel, callback);
+    }
+
+    public boolean unlistenM(String channel, Consumer<Message> callback) {
+        return this.messageConsumers.remove(channel, callback);
     }
 
     public void shutdown() {
-        running = false;
-        pubsub.unsubscribe();
-        this.subscriber.close();
-        this.pool.close();
-        this.publishExecutor.shutdown();
+        this.transports.values().forEach(BrokerTransport::shutdown);
+        this.publisher.shutdown();
+        this.dispatcher.shutdown();
+        this.timeoutTimer.stop();
+        this.connectionManager.close(CLIENT);
+    }
+
+    /**
+     * Returns the next correlation id of this broker. Ids start at a random offset and grow, so they are unique
+     * per broker and practically unique across the network.
+     * <p>
+     * Ids stay within the positive int range and wrap back to {@code 1}: older peers read the session id of a JSON
+     * packet with {@code getAsInt()} and would answer a larger id with a truncated one that never matches.
+     */
+    public long nextCorrelationId() {
+        return this.correlationIds.updateAndGet(id -> id == Integer.MAX_VALUE ? 1 : id + 1);
     }
 
+    /**
+     * Passes the response with the id to the callback, or {@code null} if none arrived within the request timeout.
+     *
+     * @deprecated use {@link #request(Packet, Class)}, ids are longs now
+     */
+    @Deprecated(forRemoval = true)
+    @SuppressWarnings("removal")
     public void addPendingResponse(int id, ResponseContainer<?> callback) {
-        Preconditions.checkArgument(!this.pendingPacketResponses.containsKey(id), "A message with the same id is already waiting for a response");
-        this.pendingPacketResponses.put(id, callback);
-        CompletableFuture.delayedExecutor(5, TimeUnit.SECONDS).execute(() ->
-                Optional.ofNullable(this.pendingPacketResponses.remove(id))
-                        .ifPresent(responseContainer -> responseContainer.consumer().accept(null)));
+        this.awaitCallback(id, callback);
     }
 
+    /**
+     * Passes the response message with the id to the callback, or {@code null} if none arrived within the request timeout.
+     *
+     * @deprecated use {@link #request(Message)}, ids are longs now
+     */
+    @Deprecated(forRemoval = true)
     public void addPendingResponse(int id, Consumer<Message> callback) {
-        Preconditions.checkArgument(!this.pendingMessageResponses.containsKey(id), "A message with the same id is already waiting for a response");
-        this.pendingMessageResponses.put(id, callback);
-        CompletableFuture.delayedExecutor(5, TimeUnit.SECONDS).execute(() ->
-                Optional.ofNullable(this.pendingMessageResponses.remove(id))
-                        .ifPresent(consumer -> consumer.accept(null)));
+        this.awaitResponse(id, Message.class, this.options.getRequestTimeout()).getFuture()
+                .whenComplete((response, error) -> callback.accept(response));
+    }
+
+    @SuppressWarnings("removal")
+    private <T extends Packet> void awaitCallback(int id, ResponseContainer<T> callback) {
+        this.awaitResponse(id, callback.packetClass(), this.options.getRequestTimeout()).getFuture()
+                .whenComplete((response, error) -> callback.consumer().accept(response));
+    }
+
+    public <T extends Packet> CompletableFuture<T> request(Packet packet, Class<T> responseType) {
+        return this.request(packet, responseType, this.options.getRequestTimeout());
+    }
+
+    /**
+     * Publishes the packet and waits for a response of the given type with the same session id.
+     * The future fails with a {@link TimeoutException} if no response arrives in time.
+     */
+    public <T extends Packet> CompletableFuture<T> request(Packet packet, Class<T> responseType, Duration timeout) {
+        PendingResponse<T> pending = this.awaitResponse(packet.getSessionId(), responseType, timeout);
+        this.publish(packet);
+        return pending.getFuture();
+    }
+
+    public CompletableFuture<Message> request(Message message) {
+        return this.request(message, this.options.getRequestTimeout());
+    }
+
+    public CompletableFuture<Message> request(Message message, Duration timeout) {
+        PendingResponse<Message> pending = this.awaitResponse(message.getId(), Message.class, timeout);
+        this.publish(message);
+        return pending.getFuture();
     }
 
-    @SuppressWarnings("unchecked")
-    private class BrokerJedisPubSub extends JedisPubSub {
-        @Override
-        public void onMessage(String channel, String messageString) {
-            JsonArray array = GSON.fromJson(messageString, JsonArray.class);
+    public <T extends Packet> CompletableFuture<ScatterResult<T>> scatter(Collection<String> routes, Supplier<? extends Packet> packetFactory, Class<T> responseType) {
+        return this.scatter(routes, packetFactory, responseType, this.options.getRequestTimeout(), 0);
+    }
 
-            String type = array.get(0).getAsString();
+    /**
+     * Sends a packet created by the factory to every route and collects the responses. The future completes
+     * once all routes answered, {@code quorum} of them answered ({@code 0} waits for all) or the timeout passed,
+     * with whatever arrived until then. All requests are written in one pipelined batch per Redis shard.
+     */
+    public <T extends Packet> CompletableFuture<ScatterResult<T>> scatter(Collection<String> routes, Supplier<? extends Packet> packetFactory,
+                                                                          Class<T> responseType, Duration timeout, int quorum) {
+        Set<String> targets = routes.stream().map(String::toLowerCase).collect(Collectors.toCollection(LinkedHashSet::new));
+        ScatterGather<T> gather = new ScatterGather<>(targets, quorum);
+        if (targets.isEmpty()) {
+            gather.finish();
+            return gather.getFuture();
+        }
 
-            switch (type) {
-                case "packet" -> {
-                    Packet packet = packetRegistry.create(array);
+        // register every request before the first one goes out, so no response can beat its registration
+        Packet[] packets = new Packet[targets.size()];
+        int index = 0;
+        for (String route : targets) {
+            Packet packet = packetFactory.get().setTo(route);
+            PendingResponse<T> pending = new PendingResponse<>(packet.getSessionId(), responseType);
+            Preconditions.checkArgument(this.pendingResponses.add(pending), "A request with the same id is already waiting for a response");
+            this.metrics.getRequests().increment();
+
+            gather.track(route, pending);
+            packets[index++] = packet;
+        }
 
-                    if (packet == null) {
-                        System.out.println("[BROKER] Received invalid packet: " + messageString);
-                        return;
-                    }
+        gather.getFuture().whenComplete((result, error) -> gather.getRequests().forEach(this.pendingResponses::remove));
+        gather.setTimeout(this.timeoutTimer.newTimeout(t -> {
+            for (PendingResponse<T> pending : gather.getRequests()) {
+                if (this.pendingResponses.remove(pending)) {
+                    this.metrics.getTimeouts().increment();
+                }
+            }
 
-                    Optional.ofNullable(pendingPacketResponses.remove(packet.getSessionId()))
-                            .ifPresent(responseContainer -> {
-                                Consumer<? extends Packet> consumer = responseContainer.consumer();
-                                Class<? extends Packet> packetClass = responseContainer.packetClass();
+            ForkJoinPool.commonPool().execute(gather::finish);
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS));
 
-                                if (packetClass.isInstance(packet))
-                                    ((Consumer<Packet>) consumer).accept(packetClass.cast(packet));
-                            });
+        PublishPipeline.Batch batch = this.publisher.batch();
+        for (Packet packet : packets) {
+            String route = packet.getTo();
+            this.metrics.out(route, packet.packetId());
 
-                    packetConsumers.getOrDefault(channel, new ObjectArrayList<>())
-                            .forEach(consumer -> consumer.accept(packet));
+            boolean local = this.isLocal(route);
+            if (local) {
+                this.dispatch(route, packet);
 
-                    packetConsumers.getOrDefault("", new ObjectArrayList<>())
-                            .forEach(consumer -> consumer.accept(packet));
+                if (!this.options.isLoopbackMirror()) {
+                    continue;
                 }
-                case "message" -> {
-                    Message message = Message.fromJson(array);
+            }
+
+            try {
+                batch.add(this.transportOf(route), this.shards.shardOf(route), route.getBytes(StandardCharsets.UTF_8), this.codec.encode(packet, local));
+            } catch (Exception e) {
+                this.metrics.getPublishErrors().increment();
+                this.publishErrorLog.warn(() -> "Could not publish to " + route, e);
+            }
+        }
+        batch.flush();
+
+        return gather.getFuture();
+    }
+
+    protected <T> PendingResponse<T> awaitResponse(long id, Class<T> responseType, Duration timeout) {
+        PendingResponse<T> pending = new PendingResponse<>(id, responseType);
+        Preconditions.checkArgument(this.pendingResponses.add(pending), "A request with the same id is already waiting for a response");
+        this.metrics.getRequests().increment();
+
+        pending.setTimeout(this.timeoutTimer.newTimeout(t -> {
+            if (this.pendingResponses.remove(pending)) {
+                this.metrics.getTimeouts().increment();
+                // complete off the timer thread, callbacks must not stall the wheel
+                ForkJoinPool.commonPool().execute(() -> pending.getFuture().completeExceptionally(
+                        new TimeoutException("No response for request " + id + " within " + timeout.toMillis() + "ms")));
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS));
+
+        return pending;
+    }
+
+    /**
+     * @return true if the response completed a pending request
+     */
+    protected boolean completeResponse(long id, Object response) {
+        PendingResponse<?> pending = this.pendingResponses.get(id);
+        if (pending != null && pending.accepts(response) && this.pendingResponses.remove(pending)) {
+            this.metrics.getRoundTripTime().record(System.nanoTime() - pending.getCreatedAt());
+            pending.complete(response);
+            return true;
+        }
+
+        return false;
+    }
 
-                    Optional.ofNullable(pendingMessageResponses.remove(message.getId()))
-                            .ifPresent(consumer -> consumer.accept(message));
+    protected void dispatch(String channel, Object payload) {
+        String key = channel;
+        PacketPriority priority = PacketPriority.NORMAL;
+        long expiresAt = 0;
+        Runnable expired = null;
+        if (payload instanceof Packet packet) {
+            this.metrics.in(channel, packet.packetId());
+            if (packet.orderingKey() != null) {
+                key = packet.orderingKey();
+            }
 
-                    messageConsumers.getOrDefault(channel, new ObjectArrayList<>())
-                            .forEach(consumer -> consumer.accept(message));
+            priority = packet.getPriority();
+            expiresAt = packet.getExpiresAt();
+            expired = packet::recycle;
+        } else {
+            this.metrics.in(channel, -1);
+        }
 
-                    messageConsumers.getOrDefault("", new ObjectArrayList<>())
-                            .forEach(consumer -> consumer.accept(message));
+        this.dispatcher.dispatch(key, priority, expiresAt, () -> {
+            long start = System.nanoTime();
+            boolean retained = true;
+            try {
+                retained = handle(channel, payload);
+            } finally {
+                this.metrics.getHandleTime().record(System.nanoTime() - start);
+
+                // the requester owns packets that completed a request
+                if (!retained && payload instanceof Packet packet) {
+                    packet.recycle();
                 }
-                default -> System.out.println("[BROKER] Received unknown message type " + type);
             }
+        }, expired);
+    }
+
+    /**
+     * @return true if the payload completed a request and is still referenced by its requester
+     */
+    protected boolean handle(String channel, Object payload) {
+        switch (payload) {
+            case Packet packet -> {
+                boolean response = completeResponse(packet.getSessionId(), packet);
+                packetConsumers.accept(channel, packet);
+                return response;
+            }
+            case Message message -> {
+                boolean response = completeResponse(message.getId(), message);
+                messageConsumers.accept(channel, message);
+                return response;
+            }
+            default -> {
+                this.receiveErrorLog.warn(() -> "Received unknown payload type " + payload.getClass().getName(), null);
+                return false;
+            }
+        }
+    }
+
+    protected void receive(String channel, byte[] payload) {
+        long start = System.nanoTime();
+        Object decoded;
+        try {
+            decoded = codec.decode(payload);
+        } catch (Exception e) {
+            this.metrics.getMalformedPayloads().increment();
+            this.receiveErrorLog.warn(() -> "Received malformed payload on " + channel + ": " + e, null);
+            return;
         }
+        this.metrics.getDecodeTime().record(System.nanoTime() - start);
+
+        if (decoded == null) {
+            this.metrics.getMalformedPayloads().increment();
+            this.receiveErrorLog.warn(() -> "Received invalid payload on " + channel, null);
+            return;
+        }
+
+        if (decoded == BrokerCodec.OWN_MIRROR) {
+            return; // already delivered in-process
+        }
+
+        dispatch(channel, decoded);
     }
 }
@@ -0,0 +1,160 @@
+package de.redstonecloud.api.redis.broker;
+
+import de.redstonecloud.api.redis.broker.codec.CompressionDictionary;
+import de.redstonecloud.api.redis.broker.codec.WireFormat;
+import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.redis.broker.publish.BackpressurePolicy;
+import de.redstonecloud.api.redis.broker.transport.TransportType;
+import de.redstonecloud.api.util.Keys;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+/**
+ * Tuning options of a {@link Broker}. Servers started by the cloud receive them through env variables,
+ * see {@link #fromEnvironment()}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class BrokerOptions {
+    /**
+     * Format used for outgoing payloads. Incoming payloads are always accepted in every format.
+     */
+    @Builder.Default
+    private final WireFormat wireFormat = WireFormat.JSON;
+
+    /**
+     * Binary payload bodies of at least this many bytes are compressed, {@code -1} disables compression.
+     */
+    @Builder.Default
+    private final int compressionThreshold = 1024;
+
+    @Builder.Default
+    private final int compressionLevel = Deflater.BEST_SPEED;
+
+    /**
+     * Dictionary used to compress outgoing payloads, {@code null} for none.
+     */
+    @Builder.Default
+    private final CompressionDictionary compressionDictionary = null;
+
+    /**
+     * Additional dictionaries accepted on receive, e.g. the previous one while rolling out a new dictionary.
+     */
+    @Builder.Default
+    private final List<CompressionDictionary> compressionDictionaries = List.of();
+
+    /**
+     * Largest decompressed body accepted on receive, larger ones are rejected as malformed before they are allocated.
+     */
+    @Builder.Default
+    private final int maxPayloadSize = 16 * 1024 * 1024;
+
+    /**
+     * Maximum number of payloads written in one pipelined batch.
+     */
+    @Builder.Default
+    private final int publishBatchSize = 64;
+
+    /**
+     * Maximum time a batch waits for more payloads before it is flushed.
+     */
+    @Builder.Default
+    private final Duration publishFlushInterval = Duration.ofMillis(1);
+
+    /**
+     * Maximum number of payloads waiting in the outbound queue.
+     */
+    @Builder.Default
+    private final int publishQueueCapacity = 65536;
+
+    @Builder.Default
+    private final BackpressurePolicy publishBackpressure = BackpressurePolicy.BLOCK;
+
+    /**
+     * How long {@link BackpressurePolicy#BLOCK} waits for free space before the payload is dropped.
+     */
+    @Builder.Default
+    private final Duration publishBlockTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Whether queued packets are replaced by newer ones with the same {@link Packet#conflationKey()}.
+     */
+    @Builder.Default
+    private final boolean publishConflation = true;
+
+    /**
+     * Number of dispatch partitions. Incoming traffic with the same ordering key is always handled
+     * by the same partition, in order.
+     */
+    @Builder.Default
+    private final int dispatchPartitions = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Timeout of requests that do not pass their own.
+     */
+    @Builder.Default
+    private final Duration requestTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Routes carried by {@link TransportType#STREAM}, all other routes use {@link TransportType#PUBSUB}.
+     * Senders and receivers of a route have to agree on its transport.
+     */
+    @Builder.Default
+    private final Set<String> streamRoutes = Set.of();
+
+    /**
+     * Approximate number of entries kept per route stream.
+     */
+    @Builder.Default
+    private final long streamMaxLength = 100_000;
+
+    /**
+     * Maximum number of stream entries read and acknowledged at once.
+     */
+    @Builder.Default
+    private final int streamBatchSize = 128;
+
+    @Builder.Default
+    private final Duration streamBlockTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Whether payloads for a route of the sending broker skip Redis and go straight to its listeners.
+     */
+    @Builder.Default
+    private final boolean loopback = true;
+
+    /**
+     * Whether loopback payloads are published to Redis as well, for external observers of the route.
+     * The sending broker ignores its own mirrored copies.
+     */
+    @Builder.Default
+    private final boolean loopbackMirror = false;
+
+    public static BrokerOptions fromEnvironment() {
+        return BrokerOptions.builder()
+                .wireFormat(WireFormat.valueOf(read(Keys.ENV_BROKER_FORMAT, Keys.PROPERTY_BROKER_FORMAT, WireFormat.JSON.name()).toUpperCase()))
+                .compressionThreshold(Integer.parseInt(read(Keys.ENV_BROKER_COMPRESSION_THRESHOLD, Keys.PROPERTY_BROKER_COMPRESSION_THRESHOLD, "1024")))
+                .streamRoutes(Arrays.stream(read(Keys.ENV_BROKER_STREAM_ROUTES, Keys.PROPERTY_BROKER_STREAM_ROUTES, "").split(","))
+                        .map(String::trim)
+                        .filter(route -> !route.isEmpty())
+                        .map(String::toLowerCase)
+                        .collect(Collectors.toUnmodifiableSet()))
+                .build();
+    }
+
+    public TransportType transportOf(String route) {
+        return this.streamRoutes.contains(route.toLowerCase()) ? TransportType.STREAM : TransportType.PUBSUB;
+    }
+
+    protected static String read(String env, String property, String fallback) {
+        String value = System.getenv(env) != null ? System.getenv(env) : System.getProperty(property);
+        return value != null && !value.isBlank() ? value : fallback;
+    }
+}
@@ -4,4 +4,8 @@ import de.redstonecloud.api.redis.broker.packet.Packet;
 
 import java.util.function.Consumer;
 
+/**
+ * @deprecated use {@link Broker#request(Packet, Class)} or {@link Packet#send(Class, Consumer)}
+ */
+@Deprecated(forRemoval = true)
 public record ResponseContainer<T extends Packet>(Class<T> packetClass, Consumer<T> consumer) {}
@@ -0,0 +1,320 @@
+package de.redstonecloud.api.redis.broker.codec;
+
+import com.google.gson.JsonArray;
+import de.redstonecloud.api.redis.broker.Broker;
+import de.redstonecloud.api.redis.broker.BrokerOptions;
+import de.redstonecloud.api.redis.broker.message.Message;
+import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.redis.broker.packet.PacketRegistry;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Turns packets and messages into broker payloads and back.
+ * <p>
+ * Binary frames are laid out as {@code [format][kind][flags][origin?][body]}, where the body of a packet is
+ * its header followed by the length-prefixed output of {@link Packet#write(ByteBuf)}.
+ * Decoding accepts both {@link WireFormat}s regardless of the format used for encoding.
+ * <p>
+ * Binary bodies of at least {@code compressionThreshold} bytes are deflated, optionally with a preset
+ * {@link CompressionDictionary}. Compressed frames set {@link #FLAG_COMPRESSED} and replace the body with
+ * {@code [dictionary id][original length][deflated body]}.
+ * <p>
+ * Payloads that were already delivered in-process and are only mirrored to Redis carry the id of the
+ * broker instance that sent them. Decoding such a payload on the sending instance yields {@link #OWN_MIRROR}.
+ */
+@Getter
+public class BrokerCodec {
+    public static final byte KIND_PACKET = 0;
+    public static final byte KIND_MESSAGE = 1;
+
+    public static final int FLAG_ORIGIN = 0x01;
+    public static final int FLAG_COMPRESSED = 0x02;
+
+    /**
+     * Decoding result of a payload mirrored by this instance itself.
+     */
+    public static final Object OWN_MIRROR = new Object();
+
+    private static final int PACKET_ORIGIN_INDEX = 8;
+    private static final int MESSAGE_ORIGIN_INDEX = 5;
+    // deflate cannot expand a compressed byte to more than about 1032 bytes
+    private static final int MAX_INFLATE_RATIO = 1032;
+    private static final int RECEIVE_BUFFER_SIZE = 8192;
+
+    protected final PacketRegistry packetRegistry;
+    protected final WireFormat format;
+    protected final long instanceId;
+
+    protected final int compressionThreshold;
+    protected final CompressionDictionary compressionDictionary;
+    protected final int maxPayloadSize;
+    protected final Int2ObjectOpenHashMap<CompressionDictionary> dictionaries = new Int2ObjectOpenHashMap<>();
+    private final ThreadLocal<Deflater> deflater;
+    private final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(() -> new Inflater(true));
+    // payloads are copied into a per-thread buffer instead of wrapping each one, decoders never keep the buffer
+    private final ThreadLocal<ByteBuf> receiveBuffer = ThreadLocal.withInitial(() -> Unpooled.buffer(RECEIVE_BUFFER_SIZE, RECEIVE_BUFFER_SIZE));
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressed = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    public BrokerCodec(PacketRegistry packetRegistry, WireFormat format) {
+        this(packetRegistry, BrokerOptions.builder().wireFormat(format).build(), 0);
+    }
+
+    public BrokerCodec(PacketRegistry packetRegistry, BrokerOptions options, long instanceId) {
+        this.packetRegistry = packetRegistry;
+        this.format = options.getWireFormat();
+        this.instanceId = instanceId;
+
+        this.compressionThreshold = options.getCompressionThreshold();
+        this.compressionDictionary = options.getCompressionDictionary();
+        this.maxPayloadSize = options.getMaxPayloadSize();
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(options.getCompressionLevel(), true));
+        for (CompressionDictionary dictionary : options.getCompressionDictionaries()) {
+            this.dictionaries.put(dictionary.id(), dictionary);
+        }
+        if (this.compressionDictionary != null) {
+            this.dictionaries.put(this.compressionDictionary.id(), this.compressionDictionary);
+        }
+    }
+
+    public CompressionStats getCompressionStats() {
+        return new CompressionStats(
+                this.compressed.sum(),
+                this.skipped.sum(),
+                this.bytesIn.sum(),
+                this.bytesOut.sum(),
+                this.compressNanos.sum(),
+                this.decompressed.sum(),
+                this.decompressNanos.sum()
+        );
+    }
+
+    public byte[] encode(Packet packet) {
+        return this.encode(packet, false);
+    }
+
+    /**
+     * @param mirror whether to stamp the payload with the id of this instance
+     */
+    public byte[] encode(Packet packet, boolean mirror) {
+        if (this.format == WireFormat.JSON) {
+            JsonArray document = packet.finalDocument();
+            if (mirror) {
+                document.add(String.valueOf(this.instanceId));
+            }
+
+            return document.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            writeHeader(buf, KIND_PACKET, mirror);
+            int bodyIndex = buf.writerIndex();
+            packet.finalBuffer(buf);
+            return finish(buf, bodyIndex);
+        } finally {
+            buf.release();
+        }
+    }
+
+    public byte[] encode(Message message) {
+        return this.encode(message, false);
+    }
+
+    public byte[] encode(Message message, boolean mirror) {
+        if (this.format == WireFormat.JSON) {
+            JsonArray document = message.toDocument();
+            if (mirror) {
+                document.add(String.valueOf(this.instanceId));
+            }
+
+            return document.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            writeHeader(buf, KIND_MESSAGE, mirror);
+            int bodyIndex = buf.writerIndex();
+            message.write(buf);
+            return finish(buf, bodyIndex);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Decodes a received payload.
+     *
+     * @return the decoded {@link Packet} or {@link Message}, {@link #OWN_MIRROR} for payloads mirrored by this
+     * instance, or {@code null} if the payload is unknown
+     */
+    public Object decode(byte[] payload) {
+        if (payload.length == 0) {
+            return null;
+        }
+
+        WireFormat format = WireFormat.of(payload[0]);
+        if (format == null) {
+            return null;
+        }
+
+        return switch (format) {
+            case JSON -> decodeJson(payload);
+            case BINARY -> decodeBinary(receive(payload));
+        };
+    }
+
+    protected ByteBuf receive(byte[] payload) {
+        if (payload.length > RECEIVE_BUFFER_SIZE) {
+            return Unpooled.wrappedBuffer(payload);
+        }
+
+        ByteBuf buf = this.receiveBuffer.get();
+        buf.clear();
+        buf.writeBytes(payload);
+        return buf;
+    }
+
+    protected Object decodeJson(byte[] payload) {
+        JsonArray array = Broker.GSON.fromJson(new String(payload, StandardCharsets.UTF_8), JsonArray.class);
+
+        return switch (array.get(0).getAsString()) {
+            case "packet" -> isOwn(array, PACKET_ORIGIN_INDEX) ? OWN_MIRROR : this.packetRegistry.create(array);
+            case "message" -> isOwn(array, MESSAGE_ORIGIN_INDEX) ? OWN_MIRROR : Message.fromJson(array);
+            default -> null;
+        };
+    }
+
+    protected Object decodeBinary(ByteBuf buf) {
+        buf.skipBytes(1);
+        byte kind = buf.readByte();
+        byte flags = buf.readByte();
+
+        if ((flags & FLAG_ORIGIN) != 0 && buf.readLong() == this.instanceId) {
+            return OWN_MIRROR;
+        }
+
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            buf = inflate(buf);
+        }
+
+        return switch (kind) {
+            case KIND_PACKET -> this.packetRegistry.create(buf);
+            case KIND_MESSAGE -> Message.read(buf);
+            default -> null;
+        };
+    }
+
+    /**
+     * Compresses the body starting at {@code bodyIndex} if it reaches the threshold and returns the frame.
+     */
+    protected byte[] finish(ByteBuf buf, int bodyIndex) {
+        int length = buf.writerIndex() - bodyIndex;
+        if (this.compressionThreshold < 0 || length < this.compressionThreshold) {
+            return ByteBufUtil.getBytes(buf);
+        }
+
+        long start = System.nanoTime();
+        byte[] body = ByteBufUtil.getBytes(buf, bodyIndex, length);
+
+        Deflater deflater = this.deflater.get();
+        deflater.reset();
+        if (this.compressionDictionary != null) {
+            deflater.setDictionary(this.compressionDictionary.bytes());
+        }
+        deflater.setInput(body);
+        deflater.finish();
+
+        // anything that does not fit into the original size is not worth it
+        byte[] deflated = new byte[length];
+        int deflatedLength = deflater.deflate(deflated);
+        if (!deflater.finished()) {
+            this.skipped.increment();
+            this.compressNanos.add(System.nanoTime() - start);
+            return ByteBufUtil.getBytes(buf);
+        }
+
+        buf.writerIndex(bodyIndex);
+        buf.setByte(2, buf.getByte(2) | FLAG_COMPRESSED);
+        BufferUtils.writeVarInt(buf, this.compressionDictionary != null ? this.compressionDictionary.id() : 0);
+        BufferUtils.writeVarInt(buf, length);
+        buf.writeBytes(deflated, 0, deflatedLength);
+
+        this.compressed.increment();
+        this.bytesIn.add(length);
+        this.bytesOut.add(deflatedLength);
+        this.compressNanos.add(System.nanoTime() - start);
+
+        return ByteBufUtil.getBytes(buf);
+    }
+
+    protected ByteBuf inflate(ByteBuf buf) {
+        long start = System.nanoTime();
+        int dictionaryId = BufferUtils.readVarInt(buf);
+        int length = BufferUtils.readVarInt(buf);
+        // the length comes from the wire, check it before allocating the body
+        long maxLength = Math.min(this.maxPayloadSize, (long) buf.readableBytes() * MAX_INFLATE_RATIO);
+        if (length < 0 || length > maxLength) {
+            throw new IllegalStateException("Compressed body claims " + length + " bytes, at most " + maxLength + " accepted");
+        }
+
+        Inflater inflater = this.inflater.get();
+        inflater.reset();
+        if (dictionaryId != 0) {
+            CompressionDictionary dictionary = this.dictionaries.get(dictionaryId);
+            if (dictionary == null) {
+                throw new IllegalStateException("Unknown compression dictionary " + dictionaryId);
+            }
+
+            inflater.setDictionary(dictionary.bytes());
+        }
+        inflater.setInput(ByteBufUtil.getBytes(buf));
+
+        byte[] body = new byte[length];
+        try {
+            int inflated = inflater.inflate(body);
+            if (inflated != length) {
+                throw new IllegalStateException("Compressed body is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Malformed compressed body", e);
+        }
+
+        this.decompressed.increment();
+        this.decompressNanos.add(System.nanoTime() - start);
+
+        return Unpooled.wrappedBuffer(body);
+    }
+
+    protected void writeHeader(ByteBuf buf, byte kind, boolean mirror) {
+        buf.writeByte(WireFormat.BINARY.getMarker());
+        buf.writeByte(kind);
+        buf.writeByte(mirror ? FLAG_ORIGIN : 0);
+
+        if (mirror) {
+            buf.writeLong(this.instanceId);
+        }
+    }
+
+    protected boolean isOwn(JsonArray array, int originIndex) {
+        return array.size() > originIndex && array.get(originIndex).getAsString().equals(String.valueOf(this.instanceId));
+    }
+}
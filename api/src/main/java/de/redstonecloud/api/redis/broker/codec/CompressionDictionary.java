@@ -0,0 +1,87 @@
+package de.redstonecloud.api.redis.broker.codec;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Preset dictionary for payload compression. Sender and receivers have to know the dictionary under the same id.
+ *
+ * @param id    id written into compressed frames, {@code 1..127}
+ * @param bytes dictionary content, the most useful sequences last
+ */
+public record CompressionDictionary(int id, byte[] bytes) {
+    private static final int SEGMENT = 16;
+    private static final int SHINGLE = 8;
+
+    public CompressionDictionary {
+        if (id < 1 || id > 127) {
+            throw new IllegalArgumentException("Dictionary id must be between 1 and 127");
+        }
+    }
+
+    /**
+     * Builds a dictionary from sample payloads, for example encoded packets captured in production.
+     * Sequences that recur in many samples are kept, the most frequent ones at the end where Deflate
+     * reaches them with the shortest distances.
+     */
+    public static CompressionDictionary train(int id, Collection<byte[]> samples, int maxSize) {
+        Object2IntOpenHashMap<ByteBuffer> counts = new Object2IntOpenHashMap<>();
+        for (byte[] sample : samples) {
+            Set<ByteBuffer> seen = new HashSet<>();
+            for (int i = 0; i + SEGMENT <= sample.length; i++) {
+                ByteBuffer segment = ByteBuffer.wrap(sample, i, SEGMENT).slice();
+                if (seen.add(segment)) {
+                    counts.addTo(segment, 1);
+                }
+            }
+        }
+
+        ObjectArrayList<ByteBuffer> segments = new ObjectArrayList<>(counts.keySet());
+        segments.removeIf(segment -> counts.getInt(segment) < 2);
+        segments.sort((a, b) -> Integer.compare(counts.getInt(b), counts.getInt(a)));
+
+        // pick segments by frequency, skipping those mostly overlapping an already picked one,
+        // then lay them out with the most frequent last
+        ObjectArrayList<ByteBuffer> picked = new ObjectArrayList<>();
+        Set<ByteBuffer> covered = new HashSet<>();
+        int size = 0;
+        for (ByteBuffer segment : segments) {
+            if (size + SEGMENT > maxSize) {
+                break;
+            }
+
+            int overlap = 0;
+            for (int i = 0; i + SHINGLE <= SEGMENT; i++) {
+                if (covered.contains(segment.slice(i, SHINGLE))) {
+                    overlap++;
+                }
+            }
+
+            if (overlap > (SEGMENT - SHINGLE) / 2) {
+                continue;
+            }
+
+            for (int i = 0; i + SHINGLE <= SEGMENT; i++) {
+                covered.add(segment.slice(i, SHINGLE));
+            }
+            picked.add(segment);
+            size += SEGMENT;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        for (int i = picked.size() - 1; i >= 0; i--) {
+            ByteBuffer segment = picked.get(i).duplicate();
+            byte[] bytes = new byte[segment.remaining()];
+            segment.get(bytes);
+            out.writeBytes(bytes);
+        }
+
+        return new CompressionDictionary(id, out.toByteArray());
+    }
+}
@@ -0,0 +1,22 @@
+package de.redstonecloud.api.redis.broker.codec;
+
+/**
+ * Compression counters of a {@link BrokerCodec} since startup.
+ *
+ * @param compressed       payloads sent compressed
+ * @param skipped          payloads above the threshold that did not shrink and were sent as is
+ * @param bytesIn          size of the compressed payloads before compression
+ * @param bytesOut         size of the compressed payloads after compression
+ * @param compressNanos    CPU time spent compressing
+ * @param decompressed     payloads received compressed
+ * @param decompressNanos  CPU time spent decompressing
+ */
+public record CompressionStats(long compressed, long skipped, long bytesIn, long bytesOut, long compressNanos,
+                               long decompressed, long decompressNanos) {
+    /**
+     * @return compressed size relative to the original size, {@code 1} if nothing was compressed yet
+     */
+    public double ratio() {
+        return this.bytesIn == 0 ? 1 : (double) this.bytesOut / this.bytesIn;
+    }
+}
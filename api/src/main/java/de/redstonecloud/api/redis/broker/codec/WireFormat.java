@@ -0,0 +1,33 @@
+package de.redstonecloud.api.redis.broker.codec;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Encoding used for broker payloads. Every payload starts with the marker byte of its format,
+ * so receivers can decode both formats side by side.
+ */
+@Getter
+@AllArgsConstructor
+public enum WireFormat {
+    /**
+     * Legacy Gson {@code JsonArray} documents. The marker is the opening bracket of the array.
+     */
+    JSON((byte) '['),
+    /**
+     * Compact length-prefixed binary frames, version 1.
+     */
+    BINARY((byte) 0x01);
+
+    private final byte marker;
+
+    public static WireFormat of(byte marker) {
+        for (WireFormat format : values()) {
+            if (format.marker == marker) {
+                return format;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package de.redstonecloud.api.redis.broker.dispatch;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Copy-on-write registry of channel listeners.
+ * <p>
+ * Changes copy the affected listener array and publish a new immutable snapshot, so lookups on the
+ * dispatch threads neither lock nor allocate. Listeners of the channel {@code ""} receive every channel.
+ */
+public class ConsumerRegistry<T> {
+    public static final String ALL_CHANNELS = "";
+
+    private static final Consumer<?>[] EMPTY = new Consumer<?>[0];
+
+    private volatile Object2ObjectOpenHashMap<String, Consumer<T>[]> snapshot = new Object2ObjectOpenHashMap<>();
+
+    public synchronized void add(String channel, Consumer<T> consumer) {
+        Object2ObjectOpenHashMap<String, Consumer<T>[]> next = new Object2ObjectOpenHashMap<>(this.snapshot);
+        Consumer<T>[] consumers = next.getOrDefault(channel, empty());
+
+        Consumer<T>[] updated = Arrays.copyOf(consumers, consumers.length + 1);
+        updated[consumers.length] = consumer;
+        next.put(channel, updated);
+
+        this.snapshot = next;
+    }
+
+    /**
+     * @return false if the consumer was not registered for the channel
+     */
+    public synchronized boolean remove(String channel, Consumer<T> consumer) {
+        Consumer<T>[] consumers = this.snapshot.get(channel);
+        if (consumers == null) {
+            return false;
+        }
+
+        int index = -1;
+        for (int i = 0; i < consumers.length; i++) {
+            if (consumers[i] == consumer) {
+                index = i;
+                break;
+            }
+        }
+
+        if (index < 0) {
+            return false;
+        }
+
+        Object2ObjectOpenHashMap<String, Consumer<T>[]> next = new Object2ObjectOpenHashMap<>(this.snapshot);
+        if (consumers.length == 1) {
+            next.remove(channel);
+        } else {
+            Consumer<T>[] updated = Arrays.copyOf(consumers, consumers.length - 1);
+            System.arraycopy(consumers, index + 1, updated, index, consumers.length - index - 1);
+            next.put(channel, updated);
+        }
+
+        this.snapshot = next;
+        return true;
+    }
+
+    /**
+     * @return the listeners of the channel, never modified after it was returned
+     */
+    public Consumer<T>[] get(String channel) {
+        Consumer<T>[] consumers = this.snapshot.get(channel);
+        return consumers != null ? consumers : empty();
+    }
+
+    /**
+     * Passes the value to the listeners of the channel, then to the listeners of all channels.
+     */
+    public void accept(String channel, T value) {
+        Object2ObjectOpenHashMap<String, Consumer<T>[]> snapshot = this.snapshot;
+
+        Consumer<T>[] consumers = snapshot.get(channel);
+        if (consumers != null) {
+            for (Consumer<T> consumer : consumers) {
+                consumer.accept(value);
+            }
+        }
+
+        Consumer<T>[] wildcard = snapshot.get(ALL_CHANNELS);
+        if (wildcard != null) {
+            for (Consumer<T> consumer : wildcard) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Consumer<T>[] empty() {
+        return (Consumer<T>[]) EMPTY;
+    }
+}
@@ -0,0 +1,194 @@
+package de.redstonecloud.api.redis.broker.dispatch;
+
+import de.redstonecloud.api.redis.broker.packet.PacketPriority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Partitioned worker pool for incoming broker traffic.
+ * <p>
+ * Every delivery carries an ordering key. Deliveries with the same key always land in the same
+ * partition and are handled in arrival order, while deliveries with different keys run in parallel.
+ * Each partition keeps one lane per {@link PacketPriority} and always serves the highest non-empty lane
+ * first, so ordering only holds between deliveries of the same priority. Deliveries whose expiry
+ * passed before they were handled are dropped and counted instead.
+ */
+public class Dispatcher {
+    private static final PacketPriority[] PRIORITIES = PacketPriority.values();
+
+    protected final Partition[] partitions;
+    private volatile boolean running = true;
+
+    public Dispatcher(int partitionCount) {
+        this.partitions = new Partition[Math.max(1, partitionCount)];
+        for (int i = 0; i < this.partitions.length; i++) {
+            this.partitions[i] = new Partition(i);
+            this.partitions[i].thread.start();
+        }
+    }
+
+    public void dispatch(String key, Runnable delivery) {
+        this.dispatch(key, PacketPriority.NORMAL, 0, delivery, null);
+    }
+
+    /**
+     * @param expiresAt epoch millis after which the delivery is dropped, {@code 0} never expires
+     * @param expired   run instead of the delivery when it is dropped, may be {@code null}
+     */
+    public void dispatch(String key, PacketPriority priority, long expiresAt, Runnable delivery, Runnable expired) {
+        if (!this.running) {
+            return;
+        }
+
+        Partition partition = this.partitions[partitionOf(key)];
+        Delivery entry = new Delivery(delivery, expired, expiresAt, System.nanoTime());
+        if (entry.isExpired(System.currentTimeMillis())) {
+            partition.drop(entry);
+            return;
+        }
+
+        partition.lanes[priority.ordinal()].offer(entry);
+        partition.permits.release();
+    }
+
+    public int partitionOf(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % this.partitions.length;
+    }
+
+    public List<PartitionStats> getStats() {
+        long now = System.nanoTime();
+        List<PartitionStats> stats = new ArrayList<>(this.partitions.length);
+        for (Partition partition : this.partitions) {
+            int queued = 0;
+            long lag = 0;
+            int[] lanes = new int[partition.lanes.length];
+            for (int i = 0; i < partition.lanes.length; i++) {
+                lanes[i] = partition.lanes[i].size();
+                queued += lanes[i];
+
+                Delivery oldest = partition.lanes[i].peek();
+                if (oldest != null) {
+                    lag = Math.max(lag, now - oldest.enqueuedAt());
+                }
+            }
+
+            stats.add(new PartitionStats(
+                    partition.index,
+                    queued,
+                    lanes,
+                    lag,
+                    partition.dispatched.sum(),
+                    partition.expired.sum()
+            ));
+        }
+        return stats;
+    }
+
+    /**
+     * @return deliveries dropped because they expired, over all partitions
+     */
+    public long getExpired() {
+        long expired = 0;
+        for (Partition partition : this.partitions) {
+            expired += partition.expired.sum();
+        }
+        return expired;
+    }
+
+    /**
+     * Stops all partitions after they handled the deliveries that are already queued.
+     */
+    public void shutdown() {
+        this.running = false;
+        for (Partition partition : this.partitions) {
+            try {
+                partition.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    protected class Partition {
+        protected final int index;
+        @SuppressWarnings("unchecked")
+        protected final ConcurrentLinkedQueue<Delivery>[] lanes = new ConcurrentLinkedQueue[PRIORITIES.length];
+        // one permit per queued delivery, over all lanes
+        protected final Semaphore permits = new Semaphore(0);
+        protected final LongAdder dispatched = new LongAdder();
+        protected final LongAdder expired = new LongAdder();
+        protected final Thread thread;
+
+        protected Partition(int index) {
+            this.index = index;
+            for (int i = 0; i < this.lanes.length; i++) {
+                this.lanes[i] = new ConcurrentLinkedQueue<>();
+            }
+
+            this.thread = new Thread(this::run, "Broker-Dispatch-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            while (running || this.permits.availablePermits() > 0) {
+                try {
+                    if (!this.permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                Delivery delivery = this.poll();
+                if (delivery.isExpired(System.currentTimeMillis())) {
+                    this.drop(delivery);
+                    continue;
+                }
+
+                try {
+                    delivery.task().run();
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+                this.dispatched.increment();
+            }
+        }
+
+        private Delivery poll() {
+            // every permit belongs to a delivery that was offered before it was released
+            for (ConcurrentLinkedQueue<Delivery> lane : this.lanes) {
+                Delivery delivery = lane.poll();
+                if (delivery != null) {
+                    return delivery;
+                }
+            }
+
+            throw new IllegalStateException("Dispatch permit without a queued delivery");
+        }
+
+        private void drop(Delivery delivery) {
+            this.expired.increment();
+            if (delivery.expired() != null) {
+                try {
+                    delivery.expired().run();
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        }
+    }
+
+    protected record Delivery(Runnable task, Runnable expired, long expiresAt, long enqueuedAt) {
+        boolean isExpired(long now) {
+            return this.expiresAt != 0 && now > this.expiresAt;
+        }
+    }
+}
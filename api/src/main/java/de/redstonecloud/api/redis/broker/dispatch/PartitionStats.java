@@ -0,0 +1,14 @@
+package de.redstonecloud.api.redis.broker.dispatch;
+
+/**
+ * Point-in-time statistics of a {@link Dispatcher} partition.
+ *
+ * @param partition  index of the partition
+ * @param queued     deliveries waiting to be handled
+ * @param lanes      deliveries waiting per priority lane, highest priority first
+ * @param lagNanos   age of the oldest waiting delivery, {@code 0} if the partition is idle
+ * @param dispatched deliveries handled so far
+ * @param expired    deliveries dropped because their expiry passed
+ */
+public record PartitionStats(int partition, int queued, int[] lanes, long lagNanos, long dispatched, long expired) {
+}
@@ -2,15 +2,18 @@ package de.redstonecloud.api.redis.broker.message;
 
 import com.google.gson.JsonArray;
 import de.redstonecloud.api.redis.broker.Broker;
+import de.redstonecloud.api.util.BufferUtils;
 import de.redstonecloud.api.util.EmptyArrays;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 @Getter
@@ -19,7 +22,7 @@ import java.util.function.Consumer;
 @AllArgsConstructor
 public class Message {
 
-    protected int id;
+    protected long id;
     protected String from;
     protected String to;
     protected String[] arguments;
@@ -37,17 +40,31 @@ public class Message {
         this.send(null);
     }
 
+    /**
+     * Sends the message and passes the response to the callback, or {@code null} if none arrived in time.
+     */
     public void send(Consumer<Message> callback) {
-        Broker broker = Broker.get();
-
-        if (callback != null) {
-            broker.addPendingResponse(this.id, callback);
+        if (callback == null) {
+            Broker.get().publish(this);
+            return;
         }
 
-        broker.publish(this);
+        this.request().whenComplete((response, error) -> callback.accept(response));
+    }
+
+    public CompletableFuture<Message> request() {
+        return Broker.get().request(this);
+    }
+
+    public CompletableFuture<Message> request(Duration timeout) {
+        return Broker.get().request(this, timeout);
     }
 
     public String toJson() {
+        return this.toDocument().toString();
+    }
+
+    public JsonArray toDocument() {
         JsonArray object = new JsonArray();
         object.add("message");
         object.add(this.id);
@@ -60,11 +77,11 @@ public class Message {
         }
         object.add(array);
 
-        return object.toString();
+        return object;
     }
 
     public static Message fromJson(JsonArray object) {
-        int messageId = object.get(1).getAsInt();
+        long messageId = object.get(1).getAsLong();
         String from = object.get(2).getAsString();
         String to = object.get(3).getAsString();
         JsonArray arguments = object.get(4).getAsJsonArray();
@@ -77,11 +94,41 @@ public class Message {
         return new Message(messageId, from, to, argumentsArray);
     }
 
+    public void write(ByteBuf buf) {
+        buf.writeLong(this.id);
+        BufferUtils.writeString(buf, this.from.toLowerCase());
+        BufferUtils.writeString(buf, this.to.toLowerCase());
+
+        BufferUtils.writeVarInt(buf, this.arguments.length);
+        for (String argument : this.arguments) {
+            BufferUtils.writeString(buf, argument);
+        }
+    }
+
+    public static Message read(ByteBuf buf) {
+        long messageId = buf.readLong();
+        String from = BufferUtils.readString(buf);
+        String to = BufferUtils.readString(buf);
+
+        // the count comes from the wire, every argument takes at least one byte
+        int count = BufferUtils.readVarInt(buf);
+        if (count < 0 || count > buf.readableBytes()) {
+            throw new IllegalStateException("Message claims " + count + " arguments, only " + buf.readableBytes() + " bytes left");
+        }
+
+        String[] argumentsArray = new String[count];
+        for (int i = 0; i < argumentsArray.length; i++) {
+            argumentsArray[i] = BufferUtils.readString(buf);
+        }
+
+        return new Message(messageId, from, to, argumentsArray);
+    }
+
     @Getter
     @Setter
     @Accessors(chain = true)
     public static class Builder {
-        protected int id = ThreadLocalRandom.current().nextInt(0, 1000);
+        protected long id = Broker.get().nextCorrelationId();
         protected String from = Broker.get().getMainRoute();
         protected String to;
         protected ObjectArrayList<String> arguments = new ObjectArrayList<>();
@@ -0,0 +1,81 @@
+package de.redstonecloud.api.redis.broker.metrics;
+
+import de.redstonecloud.api.redis.broker.metrics.TrafficCounter.TrafficStats;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of a broker. Everything is updated lock-free on the hot paths
+ * and can be read at any time from any thread.
+ */
+@Getter
+public class BrokerMetrics {
+    private final ConcurrentHashMap<String, TrafficCounter> channels = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, TrafficCounter> packets = new ConcurrentHashMap<>();
+
+    /**
+     * Time to decode a received payload.
+     */
+    private final LatencyHistogram decodeTime = new LatencyHistogram();
+    /**
+     * Time spent in the response handling and listeners of a payload.
+     */
+    private final LatencyHistogram handleTime = new LatencyHistogram();
+    /**
+     * Time from sending a request until its response arrived.
+     */
+    private final LatencyHistogram roundTripTime = new LatencyHistogram();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder malformedPayloads = new LongAdder();
+    private final LongAdder publishErrors = new LongAdder();
+
+    public void in(String channel, int packetId) {
+        channel(channel).in();
+        if (packetId >= 0) {
+            packet(packetId).in();
+        }
+    }
+
+    public void out(String channel, int packetId) {
+        channel(channel).out();
+        if (packetId >= 0) {
+            packet(packetId).out();
+        }
+    }
+
+    /**
+     * @return share of requests that timed out, between {@code 0} and {@code 1}
+     */
+    public double timeoutRate() {
+        long requests = this.requests.sum();
+        return requests == 0 ? 0 : (double) this.timeouts.sum() / requests;
+    }
+
+    public Map<String, TrafficStats> channelStats() {
+        Map<String, TrafficStats> stats = new TreeMap<>();
+        this.channels.forEach((channel, counter) -> stats.put(channel, counter.stats()));
+        return stats;
+    }
+
+    public Map<Integer, TrafficStats> packetStats() {
+        Map<Integer, TrafficStats> stats = new TreeMap<>();
+        this.packets.forEach((packetId, counter) -> stats.put(packetId, counter.stats()));
+        return stats;
+    }
+
+    private TrafficCounter channel(String channel) {
+        TrafficCounter counter = this.channels.get(channel);
+        return counter != null ? counter : this.channels.computeIfAbsent(channel, k -> new TrafficCounter());
+    }
+
+    private TrafficCounter packet(int packetId) {
+        TrafficCounter counter = this.packets.get(packetId);
+        return counter != null ? counter : this.packets.computeIfAbsent(packetId, k -> new TrafficCounter());
+    }
+}
@@ -0,0 +1,144 @@
+package de.redstonecloud.api.redis.broker.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of nanosecond durations.
+ * <p>
+ * Every power of two is split into {@value #SUB_BUCKETS} linear buckets, so recorded values keep a relative
+ * precision of about 6% over the whole range while recording is a single atomic increment.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        this.buckets.incrementAndGet(indexOf(nanos));
+        this.count.increment();
+        this.sum.add(nanos);
+
+        long currentMax;
+        while (nanos > (currentMax = this.max.get())) {
+            if (this.max.compareAndSet(currentMax, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public long count() {
+        return this.count.sum();
+    }
+
+    /**
+     * @param percentile between {@code 0} and {@code 100}
+     * @return the upper bound of the bucket holding the percentile, in nanoseconds
+     */
+    public long percentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+            total += counts[i];
+        }
+
+        return percentile(counts, total, percentile);
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+            total += counts[i];
+        }
+
+        // bucket bounds may lie above the largest recorded value
+        long max = this.max.get();
+        return new HistogramSnapshot(
+                total,
+                total == 0 ? 0 : this.sum.sum() / total,
+                Math.min(max, percentile(counts, total, 50)),
+                Math.min(max, percentile(counts, total, 90)),
+                Math.min(max, percentile(counts, total, 99)),
+                Math.min(max, percentile(counts, total, 99.9)),
+                max
+        );
+    }
+
+    private static long percentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return upperBoundOf(i);
+            }
+        }
+
+        return upperBoundOf(counts.length - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Durations in nanoseconds.
+     */
+    public record HistogramSnapshot(long count, long mean, long p50, long p90, long p99, long p999, long max) {
+        @Override
+        public String toString() {
+            return "count=" + this.count
+                    + " mean=" + format(this.mean)
+                    + " p50=" + format(this.p50)
+                    + " p90=" + format(this.p90)
+                    + " p99=" + format(this.p99)
+                    + " p99.9=" + format(this.p999)
+                    + " max=" + format(this.max);
+        }
+
+        private static String format(long nanos) {
+            if (nanos < TimeUnit.MICROSECONDS.toNanos(10)) {
+                return nanos + "ns";
+            }
+
+            if (nanos < TimeUnit.MILLISECONDS.toNanos(10)) {
+                return nanos / 1_000 + "us";
+            }
+
+            return nanos / 1_000_000 + "ms";
+        }
+    }
+}
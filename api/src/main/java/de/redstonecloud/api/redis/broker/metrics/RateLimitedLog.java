@@ -0,0 +1,43 @@
+package de.redstonecloud.api.redis.broker.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Writes a warning at most once per interval and counts the ones in between. Meant for errors on hot paths
+ * that are already counted in {@link BrokerMetrics}; the log only points at a cause, the counters tell how often.
+ */
+public class RateLimitedLog {
+    private final System.Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextAt;
+    private final LongAdder suppressed = new LongAdder();
+
+    public RateLimitedLog(Class<?> owner, Duration interval) {
+        this.logger = System.getLogger(owner.getName());
+        this.intervalNanos = interval.toNanos();
+        this.nextAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @param error logged with its stack trace, {@code null} for none
+     */
+    public void warn(Supplier<String> message, Throwable error) {
+        long now = System.nanoTime();
+        long nextAt = this.nextAt.get();
+        if (now - nextAt < 0 || !this.nextAt.compareAndSet(nextAt, now + this.intervalNanos)) {
+            this.suppressed.increment();
+            return;
+        }
+
+        long suppressed = this.suppressed.sumThenReset();
+        String text = suppressed > 0 ? message.get() + " (" + suppressed + " more since the last report)" : message.get();
+        if (error != null) {
+            this.logger.log(System.Logger.Level.WARNING, text, error);
+        } else {
+            this.logger.log(System.Logger.Level.WARNING, text);
+        }
+    }
+}
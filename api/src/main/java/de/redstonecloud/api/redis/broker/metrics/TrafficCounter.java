@@ -0,0 +1,23 @@
+package de.redstonecloud.api.redis.broker.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class TrafficCounter {
+    private final LongAdder in = new LongAdder();
+    private final LongAdder out = new LongAdder();
+
+    public void in() {
+        this.in.increment();
+    }
+
+    public void out() {
+        this.out.increment();
+    }
+
+    public TrafficStats stats() {
+        return new TrafficStats(this.in.sum(), this.out.sum());
+    }
+
+    public record TrafficStats(long in, long out) {
+    }
+}
@@ -2,52 +2,225 @@ package de.redstonecloud.api.redis.broker.packet;
 
 import com.google.gson.JsonArray;
 import de.redstonecloud.api.redis.broker.Broker;
-import de.redstonecloud.api.redis.broker.ResponseContainer;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
-import java.util.concurrent.ThreadLocalRandom;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 @Getter
 @Setter
 @Accessors(chain = true)
 public abstract class Packet {
+    /**
+     * Bit of the binary header meta byte telling that an expiry follows, the lower bits hold the priority.
+     */
+    public static final int HEADER_EXPIRES = 0x04;
+
     public abstract int packetId();
     public abstract void serialize(JsonArray data);
     public abstract void deserialize(JsonArray data);
 
-    protected int sessionId = ThreadLocalRandom.current().nextInt(0, 1000);
+    // assigned on first use, received packets get both from the wire
+    protected long sessionId;
+    // 0 is a valid id, legacy peers send ids from 0 to 999
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    protected boolean sessionIdAssigned;
 
-    protected String from = Broker.get().getMainRoute();
+    protected String from;
     protected String to = "cloud";
 
+    // null uses defaultPriority()
+    protected PacketPriority priority;
+    // epoch millis after which receivers drop the packet unhandled, 0 never expires
+    protected long expiresAt;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    Recycler.Handle<Packet> recyclerHandle;
+
+    public long getSessionId() {
+        if (!this.sessionIdAssigned) {
+            this.sessionId = Broker.get().nextCorrelationId();
+            this.sessionIdAssigned = true;
+        }
+
+        return this.sessionId;
+    }
+
+    public Packet setSessionId(long sessionId) {
+        this.sessionId = sessionId;
+        this.sessionIdAssigned = true;
+        return this;
+    }
+
+    public String getFrom() {
+        if (this.from == null) {
+            this.from = Broker.get().getMainRoute();
+        }
+
+        return this.from;
+    }
+
+    public PacketPriority getPriority() {
+        return this.priority != null ? this.priority : this.defaultPriority();
+    }
+
+    /**
+     * Priority of packets of this type that did not set one.
+     */
+    public PacketPriority defaultPriority() {
+        return PacketPriority.NORMAL;
+    }
+
+    /**
+     * Time to live of packets of this type that did not set an expiry, {@code null} never expires.
+     * It starts when the packet is first sent.
+     */
+    public Duration defaultTimeToLive() {
+        return null;
+    }
+
+    public long getExpiresAt() {
+        if (this.expiresAt == 0) {
+            Duration ttl = this.defaultTimeToLive();
+            if (ttl != null) {
+                this.expiresAt = System.currentTimeMillis() + ttl.toMillis();
+            }
+        }
+
+        return this.expiresAt;
+    }
+
+    /**
+     * Lets receivers drop this packet unhandled if it was not dispatched within the given time from now.
+     * Relies on the clocks of sender and receiver being in sync.
+     */
+    public Packet setTimeToLive(Duration ttl) {
+        this.expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        return this;
+    }
+
+    /**
+     * Gives a pooled {@link Recyclable} packet back to its pool. Does nothing for packets that were not
+     * taken from a pool, like packets created with {@code new}.
+     */
+    public void recycle() {
+        Recycler.Handle<Packet> handle = this.recyclerHandle;
+        if (handle == null) {
+            return;
+        }
+
+        this.sessionId = 0;
+        this.sessionIdAssigned = false;
+        this.from = null;
+        this.to = "cloud";
+        this.priority = null;
+        this.expiresAt = 0;
+        handle.recycle(this);
+    }
+
+    /**
+     * Key that decides which dispatch partition handles this packet on the receiving side.
+     * Packets with the same key are handled in order, {@code null} orders the packet by its channel.
+     */
+    public String orderingKey() {
+        return null;
+    }
+
+    /**
+     * Key of the state this packet updates. While a packet with the same key, id and route is still waiting
+     * to be published, this one replaces it, so receivers only see the latest update.
+     * {@code null} never conflates.
+     */
+    public String conflationKey() {
+        return null;
+    }
+
+    /**
+     * Writes the packet body for the binary wire format.
+     * Packets without a binary layout fall back to their {@link #serialize(JsonArray)} document.
+     */
+    public void write(ByteBuf buf) {
+        JsonArray data = new JsonArray();
+        this.serialize(data);
+        BufferUtils.writeString(buf, data.toString());
+    }
+
+    /**
+     * Reads the packet body written by {@link #write(ByteBuf)}.
+     */
+    public void read(ByteBuf buf) {
+        this.deserialize(Broker.GSON.fromJson(BufferUtils.readString(buf), JsonArray.class));
+    }
+
     public JsonArray finalDocument() {
         JsonArray object = new JsonArray();
         object.add("packet");
         object.add(this.packetId());
-        object.add(this.sessionId);
-        object.add(this.from.toLowerCase());
+        object.add(this.getSessionId());
+        object.add(this.getFrom().toLowerCase());
         object.add(this.to.toLowerCase());
 
         JsonArray serialized = new JsonArray();
         this.serialize(serialized);
         object.add(serialized);
+        object.add(this.getPriority().ordinal());
+        object.add(this.getExpiresAt());
 
         return object;
     }
 
+    /**
+     * Writes the packet header and its length-prefixed body for the binary wire format.
+     */
+    public void finalBuffer(ByteBuf buf) {
+        BufferUtils.writeVarInt(buf, this.packetId());
+        buf.writeLong(this.getSessionId());
+
+        long expiresAt = this.getExpiresAt();
+        buf.writeByte(this.getPriority().ordinal() | (expiresAt != 0 ? HEADER_EXPIRES : 0));
+        if (expiresAt != 0) {
+            buf.writeLong(expiresAt);
+        }
+
+        BufferUtils.writeString(buf, this.getFrom().toLowerCase());
+        BufferUtils.writeString(buf, this.to.toLowerCase());
+
+        int lengthIndex = buf.writerIndex();
+        buf.writeInt(0);
+        this.write(buf);
+        buf.setInt(lengthIndex, buf.writerIndex() - lengthIndex - Integer.BYTES);
+    }
+
     public void send() {
         this.send(null, null);
     }
 
+    /**
+     * Sends the packet and passes the response to the callback, or {@code null} if none arrived in time.
+     */
     public <T extends Packet> void send(Class<T> packetType, Consumer<T> callback) {
-        Broker broker = Broker.get();
+        if (callback == null) {
+            Broker.get().publish(this);
+            return;
+        }
 
-        if (callback != null)
-            broker.addPendingResponse(this.sessionId, new ResponseContainer<>(packetType, callback));
+        this.request(packetType).whenComplete((response, error) -> callback.accept(response));
+    }
+
+    public <T extends Packet> CompletableFuture<T> request(Class<T> packetType) {
+        return Broker.get().request(this, packetType);
+    }
 
-        broker.publish(this);
+    public <T extends Packet> CompletableFuture<T> request(Class<T> packetType, Duration timeout) {
+        return Broker.get().request(this, packetType, timeout);
     }
 }
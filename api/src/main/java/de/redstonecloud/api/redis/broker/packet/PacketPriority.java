@@ -0,0 +1,17 @@
+package de.redstonecloud.api.redis.broker.packet;
+
+/**
+ * Dispatch priority of a packet on the receiving side. Queued packets of a higher priority
+ * are handled first, packets of the same priority keep their order.
+ */
+public enum PacketPriority {
+    HIGH,
+    NORMAL,
+    LOW;
+
+    private static final PacketPriority[] VALUES = values();
+
+    public static PacketPriority of(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : NORMAL;
+    }
+}
@@ -1,38 +1,150 @@
 package de.redstonecloud.api.redis.broker.packet;
 
 import com.google.gson.JsonArray;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
 public class PacketRegistry {
 
-    protected final Int2ObjectOpenHashMap<Supplier<? extends Packet>> registry = new Int2ObjectOpenHashMap<>();
+    protected final Int2ObjectOpenHashMap<Entry> registry = new Int2ObjectOpenHashMap<>();
+    protected final LongAdder unknownPackets = new LongAdder();
+    // routes are a small set, received headers reuse their strings instead of decoding them every time
+    private final String[] routeCache = new String[256];
 
     public void register(int type, Supplier<? extends Packet> supplier) {
-        this.registry.put(type, supplier);
+        this.registry.put(type, new Entry(supplier));
     }
 
+    /**
+     * Creates a packet of the type, taken from the pool of the type if it is {@link Recyclable}.
+     */
     public Packet create(int type) {
-        Supplier<? extends Packet> supplier = registry.get(type);
-        if (supplier == null) {
+        Entry entry = registry.get(type);
+        if (entry == null) {
+            this.unknownPackets.increment();
             return null;
         }
 
-        return supplier.get();
+        return entry.create();
     }
 
     public Packet create(JsonArray packetData) {
         Packet packet = this.create(packetData.get(1).getAsInt());
 
         if (packet != null) {
-            packet.setSessionId(packetData.get(2).getAsInt());
+            packet.setSessionId(packetData.get(2).getAsLong());
             packet.setFrom(packetData.get(3).getAsString());
             packet.setTo(packetData.get(4).getAsString());
             packet.deserialize(packetData.get(5).getAsJsonArray());
+
+            if (packetData.size() > 7) {
+                packet.setPriority(PacketPriority.of(packetData.get(6).getAsInt()));
+                packet.setExpiresAt(packetData.get(7).getAsLong());
+            }
+        }
+
+        return packet;
+    }
+
+    public Packet create(ByteBuf buf) {
+        Packet packet = this.create(BufferUtils.readVarInt(buf));
+        if (packet == null) {
+            return null;
+        }
+
+        packet.setSessionId(buf.readLong());
+
+        int meta = buf.readUnsignedByte();
+        packet.setPriority(PacketPriority.of(meta & 0x03));
+        if ((meta & Packet.HEADER_EXPIRES) != 0) {
+            packet.setExpiresAt(buf.readLong());
+        }
+
+        packet.setFrom(this.readRoute(buf));
+        packet.setTo(this.readRoute(buf));
+
+        // bound the body by moving the writer index instead of allocating a slice
+        int length = buf.readInt();
+        int end = buf.readerIndex() + length;
+        int writerIndex = buf.writerIndex();
+        buf.writerIndex(end);
+        try {
+            packet.read(buf);
+        } finally {
+            buf.writerIndex(writerIndex);
+            buf.readerIndex(end);
         }
 
         return packet;
     }
+
+    protected String readRoute(ByteBuf buf) {
+        int length = BufferUtils.readVarInt(buf) - 1;
+        if (length < 0) {
+            return null;
+        }
+
+        int start = buf.readerIndex();
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buf.getByte(start + i);
+        }
+
+        int slot = hash & (this.routeCache.length - 1);
+        String route = this.routeCache[slot];
+        if (route == null || !BufferUtils.matches(route, buf, start, length)) {
+            route = buf.toString(start, length, StandardCharsets.UTF_8);
+            this.routeCache[slot] = route;
+        }
+
+        buf.skipBytes(length);
+        return route;
+    }
+
+    /**
+     * @return number of received packets with an id that is not registered
+     */
+    public long getUnknownPackets() {
+        return this.unknownPackets.sum();
+    }
+
+    protected static final class Entry {
+        private final Supplier<? extends Packet> supplier;
+        private final Recycler<Packet> recycler;
+        // whether the type is Recyclable is only known once the first instance exists
+        private volatile boolean probed = false;
+        private volatile boolean recyclable = false;
+
+        private Entry(Supplier<? extends Packet> supplier) {
+            this.supplier = supplier;
+            this.recycler = new Recycler<>() {
+                @Override
+                protected Packet newObject(Handle<Packet> handle) {
+                    Packet packet = supplier.get();
+                    packet.recyclerHandle = handle;
+                    return packet;
+                }
+            };
+        }
+
+        private Packet create() {
+            if (this.recyclable) {
+                return this.recycler.get();
+            }
+
+            Packet packet = this.supplier.get();
+            if (!this.probed) {
+                this.recyclable = packet instanceof Recyclable;
+                this.probed = true;
+            }
+
+            return packet;
+        }
+    }
 }
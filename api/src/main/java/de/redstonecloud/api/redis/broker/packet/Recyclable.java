@@ -0,0 +1,19 @@
+package de.redstonecloud.api.redis.broker.packet;
+
+/**
+ * Marks a packet type whose received instances are taken from a per-thread pool and given back
+ * once every listener ran. Listeners must copy what they need and must neither keep a reference
+ * to such a packet after they returned nor hand it to another thread, for example by sending it on.
+ * Packets completing a request are never given back.
+ * <p>
+ * The decoder overwrites the header and calls {@link Packet#read} or {@link Packet#deserialize},
+ * which have to assign every field. They may keep a field of the previous packet when the received
+ * bytes are equal, see {@link de.redstonecloud.api.util.BufferUtils#readString(io.netty.buffer.ByteBuf, String)}.
+ * <p>
+ * Pooling saves the packet instance and unchanged fields, not every allocation: a packet whose
+ * strings or {@code UUID} differ from the previous one still allocates them, about 184 bytes for a
+ * {@link de.redstonecloud.api.redis.broker.packet.defaults.player.PlayerConnectPacket}
+ * against about 250 without pooling.
+ */
+public interface Recyclable {
+}
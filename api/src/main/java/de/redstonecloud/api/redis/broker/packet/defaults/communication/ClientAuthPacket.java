@@ -2,6 +2,9 @@ package de.redstonecloud.api.redis.broker.packet.defaults.communication;
 
 import com.google.gson.JsonArray;
 import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.redis.broker.packet.PacketPriority;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -23,6 +26,16 @@ public class ClientAuthPacket extends Packet {
         return NETWORK_ID;
     }
 
+    @Override
+    public String orderingKey() {
+        return this.clientId;
+    }
+
+    @Override
+    public PacketPriority defaultPriority() {
+        return PacketPriority.HIGH;
+    }
+
     @Override
     public void serialize(JsonArray data) {
         data.add(this.clientId);
@@ -32,4 +45,14 @@ public class ClientAuthPacket extends Packet {
     public void deserialize(JsonArray data) {
         this.clientId = data.get(0).getAsString();
     }
+
+    @Override
+    public void write(ByteBuf buf) {
+        BufferUtils.writeString(buf, this.clientId);
+    }
+
+    @Override
+    public void read(ByteBuf buf) {
+        this.clientId = BufferUtils.readString(buf);
+    }
 }
@@ -2,6 +2,9 @@ package de.redstonecloud.api.redis.broker.packet.defaults.player;
 
 import com.google.gson.JsonArray;
 import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.redis.broker.packet.Recyclable;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -15,7 +18,7 @@ import java.util.UUID;
 @Accessors(chain = true)
 @NoArgsConstructor
 @AllArgsConstructor
-public class PlayerConnectPacket extends Packet {
+public class PlayerConnectPacket extends Packet implements Recyclable {
     public static int NETWORK_ID = 5;
 
     protected String playerName;
@@ -28,6 +31,11 @@ public class PlayerConnectPacket extends Packet {
         return NETWORK_ID;
     }
 
+    @Override
+    public String orderingKey() {
+        return this.uuid == null ? null : this.uuid.toString();
+    }
+
     @Override
     public void serialize(JsonArray data) {
         data.add(this.playerName);
@@ -43,4 +51,21 @@ public class PlayerConnectPacket extends Packet {
         this.ipAddress = data.get(2).getAsString();
         this.server = data.get(3).getAsString();
     }
+
+    @Override
+    public void write(ByteBuf buf) {
+        BufferUtils.writeString(buf, this.playerName);
+        BufferUtils.writeUUID(buf, this.uuid);
+        BufferUtils.writeString(buf, this.ipAddress);
+        BufferUtils.writeString(buf, this.server);
+    }
+
+    @Override
+    public void read(ByteBuf buf) {
+        // a pooled instance still holds the values of the previous packet, unchanged ones are kept
+        this.playerName = BufferUtils.readString(buf, this.playerName);
+        this.uuid = BufferUtils.readUUID(buf, this.uuid);
+        this.ipAddress = BufferUtils.readString(buf, this.ipAddress);
+        this.server = BufferUtils.readString(buf, this.server);
+    }
 }
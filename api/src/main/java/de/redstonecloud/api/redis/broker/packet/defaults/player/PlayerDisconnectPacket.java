@@ -2,6 +2,8 @@ package de.redstonecloud.api.redis.broker.packet.defaults.player;
 
 import com.google.gson.JsonArray;
 import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -26,6 +28,11 @@ public class PlayerDisconnectPacket extends Packet {
         return NETWORK_ID;
     }
 
+    @Override
+    public String orderingKey() {
+        return this.uuid == null ? null : this.uuid.toString();
+    }
+
     @Override
     public void serialize(JsonArray data) {
         data.add(this.uuid.toString());
@@ -37,4 +44,16 @@ public class PlayerDisconnectPacket extends Packet {
         this.uuid = UUID.fromString(data.get(0).getAsString());
         this.server = data.get(1).getAsString();
     }
+
+    @Override
+    public void write(ByteBuf buf) {
+        BufferUtils.writeUUID(buf, this.uuid);
+        BufferUtils.writeString(buf, this.server);
+    }
+
+    @Override
+    public void read(ByteBuf buf) {
+        this.uuid = BufferUtils.readUUID(buf);
+        this.server = BufferUtils.readString(buf);
+    }
 }
@@ -2,7 +2,10 @@ package de.redstonecloud.api.redis.broker.packet.defaults.server;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import de.redstonecloud.api.redis.broker.Broker;
 import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -39,4 +42,19 @@ public class ServerActionPacket extends Packet {
         this.action = data.get(1).getAsString();
         this.extraData = data.get(2).getAsJsonObject();
     }
+
+    @Override
+    public void write(ByteBuf buf) {
+        BufferUtils.writeString(buf, this.playerUuid);
+        BufferUtils.writeString(buf, this.action);
+        BufferUtils.writeString(buf, this.extraData != null ? this.extraData.toString() : null);
+    }
+
+    @Override
+    public void read(ByteBuf buf) {
+        this.playerUuid = BufferUtils.readString(buf);
+        this.action = BufferUtils.readString(buf);
+        String extraData = BufferUtils.readString(buf);
+        this.extraData = extraData != null ? Broker.GSON.fromJson(extraData, JsonObject.class) : null;
+    }
 }
@@ -2,6 +2,9 @@ package de.redstonecloud.api.redis.broker.packet.defaults.server;
 
 import com.google.gson.JsonArray;
 import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.redis.broker.packet.Recyclable;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,7 +16,7 @@ import lombok.experimental.Accessors;
 @Accessors(chain = true)
 @NoArgsConstructor
 @AllArgsConstructor
-public class ServerChangeStatusPacket extends Packet {
+public class ServerChangeStatusPacket extends Packet implements Recyclable {
     public static int NETWORK_ID = 10;
 
     protected String server;
@@ -24,6 +27,16 @@ public class ServerChangeStatusPacket extends Packet {
         return NETWORK_ID;
     }
 
+    @Override
+    public String orderingKey() {
+        return this.server;
+    }
+
+    @Override
+    public String conflationKey() {
+        return this.server;
+    }
+
     @Override
     public void serialize(JsonArray data) {
         data.add(this.server);
@@ -35,4 +48,17 @@ public class ServerChangeStatusPacket extends Packet {
         this.server = data.get(0).getAsString();
         this.newStatus = data.get(1).getAsString();
     }
+
+    @Override
+    public void write(ByteBuf buf) {
+        BufferUtils.writeString(buf, this.server);
+        BufferUtils.writeString(buf, this.newStatus);
+    }
+
+    @Override
+    public void read(ByteBuf buf) {
+        // a pooled instance still holds the values of the previous packet, unchanged ones are kept
+        this.server = BufferUtils.readString(buf, this.server);
+        this.newStatus = BufferUtils.readString(buf, this.newStatus);
+    }
 }
@@ -2,6 +2,8 @@ package de.redstonecloud.api.redis.broker.packet.defaults.template;
 
 import com.google.gson.JsonArray;
 import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -32,4 +34,14 @@ public class BestTemplateResultPacket extends Packet {
     public void deserialize(JsonArray data) {
         this.server = data.get(0).getAsString();
     }
+
+    @Override
+    public void write(ByteBuf buf) {
+        BufferUtils.writeString(buf, this.server);
+    }
+
+    @Override
+    public void read(ByteBuf buf) {
+        this.server = BufferUtils.readString(buf);
+    }
 }
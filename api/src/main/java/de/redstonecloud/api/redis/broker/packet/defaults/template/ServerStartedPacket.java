@@ -2,6 +2,8 @@ package de.redstonecloud.api.redis.broker.packet.defaults.template;
 
 import com.google.gson.JsonArray;
 import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.util.BufferUtils;
+import io.netty.buffer.ByteBuf;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -23,6 +25,11 @@ public class ServerStartedPacket extends Packet {
         return NETWORK_ID;
     }
 
+    @Override
+    public String orderingKey() {
+        return this.serverName;
+    }
+
     @Override
     public void serialize(JsonArray data) {
         data.add(this.serverName);
@@ -32,4 +39,14 @@ public class ServerStartedPacket extends Packet {
     public void deserialize(JsonArray data) {
         this.serverName = data.get(0).getAsString();
     }
+
+    @Override
+    public void write(ByteBuf buf) {
+        BufferUtils.writeString(buf, this.serverName);
+    }
+
+    @Override
+    public void read(ByteBuf buf) {
+        this.serverName = BufferUtils.readString(buf);
+    }
 }
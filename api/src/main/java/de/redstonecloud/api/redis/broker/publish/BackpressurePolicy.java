@@ -0,0 +1,19 @@
+package de.redstonecloud.api.redis.broker.publish;
+
+/**
+ * What {@link PublishPipeline#submit} does while the outbound queue is full.
+ */
+public enum BackpressurePolicy {
+    /**
+     * Wait for free space up to the configured block timeout, then drop the payload.
+     */
+    BLOCK,
+    /**
+     * Drop the payload immediately.
+     */
+    DROP,
+    /**
+     * Publish the payload synchronously on the calling thread.
+     */
+    CALLER_RUNS
+}
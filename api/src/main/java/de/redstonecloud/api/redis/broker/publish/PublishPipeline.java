@@ -0,0 +1,355 @@
+package de.redstonecloud.api.redis.broker.publish;
+
+import de.redstonecloud.api.redis.broker.metrics.LatencyHistogram;
+import de.redstonecloud.api.redis.broker.metrics.RateLimitedLog;
+import de.redstonecloud.api.redis.broker.transport.BrokerTransport;
+import lombok.Getter;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coalescing publish path of the broker.
+ * <p>
+ * Producers append to a lock-free queue, a single writer thread drains it and flushes the payloads
+ * through one Jedis {@link Pipeline} per batch and Redis shard, letting the {@link BrokerTransport} of every payload
+ * append its command. A batch is flushed once it reaches {@code batchSize}
+ * payloads or once {@code flushInterval} passed since its first payload was taken.
+ * <p>
+ * Payloads submitted with a conflation key replace the payload of a queued entry with the same key,
+ * so only the latest one is written while the first still waits. The entry keeps its place in the queue.
+ */
+public class PublishPipeline {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    protected final JedisPool[] pools;
+    protected final int batchSize;
+    protected final long flushIntervalNanos;
+    protected final int capacity;
+    protected final BackpressurePolicy backpressure;
+    protected final long blockTimeoutNanos;
+
+    protected final ConcurrentLinkedQueue<Outbound> queue = new ConcurrentLinkedQueue<>();
+    protected final AtomicInteger queueDepth = new AtomicInteger();
+    protected final ConcurrentHashMap<String, Outbound> conflating = new ConcurrentHashMap<>();
+
+    protected final LongAdder published = new LongAdder();
+    protected final LongAdder batches = new LongAdder();
+    protected final LongAdder dropped = new LongAdder();
+    protected final LongAdder conflated = new LongAdder();
+    protected final LongAdder failed = new LongAdder();
+    protected final RateLimitedLog failureLog = new RateLimitedLog(PublishPipeline.class, Duration.ofMinutes(1));
+    protected final AtomicInteger maxBatchSize = new AtomicInteger();
+    /**
+     * Time payloads spent in the queue before their batch was written.
+     */
+    @Getter
+    protected final LatencyHistogram queueWait = new LatencyHistogram();
+
+    private final Thread writer;
+    private volatile boolean parked = false;
+    private volatile boolean running = true;
+
+    public PublishPipeline(JedisPool[] pools, int batchSize, Duration flushInterval, int capacity,
+                           BackpressurePolicy backpressure, Duration blockTimeout) {
+        this.pools = pools;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.capacity = capacity;
+        this.backpressure = backpressure;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+
+        this.writer = new Thread(this::run, "Redis-Publisher");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a payload for publishing on the given Redis shard.
+     *
+     * @return false if the payload was dropped because of backpressure
+     */
+    public boolean submit(BrokerTransport transport, int shard, byte[] channel, byte[] payload) {
+        return this.submit(transport, shard, channel, payload, null);
+    }
+
+    /**
+     * Queues a payload for publishing on the given Redis shard. If a payload with the same conflation key
+     * is still queued, its payload is replaced instead.
+     *
+     * @param conflationKey key unique per channel and kind of update, or {@code null} to never conflate
+     * @return false if the payload was dropped because of backpressure
+     */
+    public boolean submit(BrokerTransport transport, int shard, byte[] channel, byte[] payload, String conflationKey) {
+        if (!this.running) {
+            this.dropped.increment();
+            return false;
+        }
+
+        if (conflationKey != null && this.conflate(conflationKey, payload)) {
+            this.conflated.increment();
+            return true;
+        }
+
+        if (!reserve()) {
+            switch (this.backpressure) {
+                case CALLER_RUNS -> {
+                    publishDirect(transport, shard, channel, payload);
+                    return true;
+                }
+                case BLOCK -> {
+                    long deadline = System.nanoTime() + this.blockTimeoutNanos;
+                    while (!reserve()) {
+                        if (System.nanoTime() >= deadline || !this.running) {
+                            this.dropped.increment();
+                            return false;
+                        }
+
+                        LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                    }
+                }
+                default -> {
+                    this.dropped.increment();
+                    return false;
+                }
+            }
+        }
+
+        Outbound outbound = new Outbound(transport, shard, channel, payload, conflationKey, System.nanoTime());
+        if (conflationKey != null) {
+            // a concurrent submit may have registered the key meanwhile, then both are sent
+            this.conflating.putIfAbsent(conflationKey, outbound);
+        }
+
+        this.queue.offer(outbound);
+        if (this.parked) {
+            LockSupport.unpark(this.writer);
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts a batch that bypasses the queue and is written on the calling thread,
+     * as one pipeline per shard, once it is flushed.
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    public PublishStats getStats() {
+        return new PublishStats(
+                this.queueDepth.get(),
+                this.published.sum(),
+                this.batches.sum(),
+                this.maxBatchSize.get(),
+                this.dropped.sum(),
+                this.conflated.sum(),
+                this.failed.sum()
+        );
+    }
+
+    /**
+     * Stops accepting payloads and waits for the writer to flush everything that is already queued.
+     */
+    public void shutdown() {
+        this.running = false;
+        LockSupport.unpark(this.writer);
+
+        try {
+            this.writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean conflate(String conflationKey, byte[] payload) {
+        return this.conflating.computeIfPresent(conflationKey, (key, outbound) -> {
+            outbound.payload = payload;
+            return outbound;
+        }) != null;
+    }
+
+    private boolean reserve() {
+        if (this.queueDepth.incrementAndGet() > this.capacity) {
+            this.queueDepth.decrementAndGet();
+            return false;
+        }
+
+        return true;
+    }
+
+    private void run() {
+        ObjectArrayList<Outbound> batch = new ObjectArrayList<>(this.batchSize);
+        ObjectArrayList<Outbound>[] shardBatches = shardBatches();
+
+        while (this.running || !this.queue.isEmpty()) {
+            Outbound first = this.queue.poll();
+            if (first == null) {
+                idle();
+                continue;
+            }
+
+            batch.add(first);
+            long deadline = System.nanoTime() + this.flushIntervalNanos;
+            while (batch.size() < this.batchSize) {
+                Outbound next = this.queue.poll();
+                if (next != null) {
+                    batch.add(next);
+                    continue;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !this.running) {
+                    break;
+                }
+
+                this.parked = true;
+                if (this.queue.isEmpty()) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+                this.parked = false;
+            }
+
+            this.queueDepth.addAndGet(-batch.size());
+
+            long now = System.nanoTime();
+            for (Outbound outbound : batch) {
+                this.queueWait.record(now - outbound.enqueuedAt);
+
+                // after this, newer payloads with the key are queued on their own instead of replacing this one
+                if (outbound.conflationKey != null) {
+                    this.conflating.remove(outbound.conflationKey, outbound);
+                }
+            }
+
+            if (this.pools.length == 1) {
+                flush(this.pools[0], batch);
+            } else {
+                for (Outbound outbound : batch) {
+                    shardBatches[outbound.shard].add(outbound);
+                }
+
+                for (int shard = 0; shard < shardBatches.length; shard++) {
+                    if (!shardBatches[shard].isEmpty()) {
+                        flush(this.pools[shard], shardBatches[shard]);
+                        shardBatches[shard].clear();
+                    }
+                }
+            }
+
+            this.batches.increment();
+            this.maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+            batch.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectArrayList<Outbound>[] shardBatches() {
+        ObjectArrayList<Outbound>[] shardBatches = new ObjectArrayList[this.pools.length];
+        for (int i = 0; i < shardBatches.length; i++) {
+            shardBatches[i] = new ObjectArrayList<>();
+        }
+
+        return shardBatches;
+    }
+
+    private void idle() {
+        this.parked = true;
+        if (this.queue.isEmpty() && this.running) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        this.parked = false;
+    }
+
+    private void flush(JedisPool pool, ObjectArrayList<Outbound> batch) {
+        try (Jedis jedis = pool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (Outbound outbound : batch) {
+                outbound.transport.write(pipeline, outbound.channel, outbound.payload);
+            }
+            pipeline.sync();
+
+            this.published.add(batch.size());
+        } catch (Exception e) {
+            this.failed.add(batch.size());
+            this.failureLog.warn(() -> "Could not publish a batch of " + batch.size() + " payloads", e);
+        }
+    }
+
+    private void publishDirect(BrokerTransport transport, int shard, byte[] channel, byte[] payload) {
+        try (Jedis jedis = this.pools[shard].getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            transport.write(pipeline, channel, payload);
+            pipeline.sync();
+            this.published.increment();
+        } catch (Exception e) {
+            this.failed.increment();
+            this.failureLog.warn(() -> "Could not publish a payload", e);
+        }
+    }
+
+    public final class Batch {
+        private final ObjectArrayList<Outbound>[] shardBatches = shardBatches();
+        private int size = 0;
+
+        private Batch() {
+        }
+
+        public Batch add(BrokerTransport transport, int shard, byte[] channel, byte[] payload) {
+            this.shardBatches[shard].add(new Outbound(transport, shard, channel, payload, null, System.nanoTime()));
+            this.size++;
+            return this;
+        }
+
+        public void flush() {
+            if (this.size == 0) {
+                return;
+            }
+
+            if (!PublishPipeline.this.running) {
+                PublishPipeline.this.dropped.add(this.size);
+                return;
+            }
+
+            for (int shard = 0; shard < this.shardBatches.length; shard++) {
+                if (!this.shardBatches[shard].isEmpty()) {
+                    PublishPipeline.this.flush(PublishPipeline.this.pools[shard], this.shardBatches[shard]);
+                    this.shardBatches[shard].clear();
+                }
+            }
+
+            PublishPipeline.this.batches.increment();
+            PublishPipeline.this.maxBatchSize.accumulateAndGet(this.size, Math::max);
+            this.size = 0;
+        }
+    }
+
+    protected static final class Outbound {
+        private final BrokerTransport transport;
+        private final int shard;
+        private final byte[] channel;
+        private final String conflationKey;
+        private final long enqueuedAt;
+        private volatile byte[] payload;
+
+        private Outbound(BrokerTransport transport, int shard, byte[] channel, byte[] payload, String conflationKey, long enqueuedAt) {
+            this.transport = transport;
+            this.shard = shard;
+            this.channel = channel;
+            this.payload = payload;
+            this.conflationKey = conflationKey;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package de.redstonecloud.api.redis.broker.publish;
+
+/**
+ * Point-in-time statistics of a {@link PublishPipeline}.
+ *
+ * @param queueDepth   payloads currently waiting in the outbound queue
+ * @param published    payloads written to Redis
+ * @param batches      pipelined batches flushed
+ * @param maxBatchSize largest batch flushed so far
+ * @param dropped      payloads dropped because of backpressure
+ * @param conflated    payloads that replaced a queued payload with the same conflation key
+ * @param failed       payloads lost because a batch could not be written
+ */
+public record PublishStats(int queueDepth, long published, long batches, int maxBatchSize, long dropped, long conflated, long failed) {
+    public double averageBatchSize() {
+        return batches == 0 ? 0 : (double) (published + failed) / batches;
+    }
+}
@@ -0,0 +1,39 @@
+package de.redstonecloud.api.redis.broker.request;
+
+import io.netty.util.Timeout;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A request waiting for its response.
+ */
+@Getter
+public class PendingResponse<T> {
+    protected final long id;
+    protected final Class<T> responseType;
+    protected final CompletableFuture<T> future = new CompletableFuture<>();
+    protected final long createdAt = System.nanoTime();
+
+    @Setter
+    protected volatile Timeout timeout;
+
+    public PendingResponse(long id, Class<T> responseType) {
+        this.id = id;
+        this.responseType = responseType;
+    }
+
+    public boolean accepts(Object response) {
+        return this.responseType.isInstance(response);
+    }
+
+    public void complete(Object response) {
+        Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+
+        this.future.complete(this.responseType.cast(response));
+    }
+}
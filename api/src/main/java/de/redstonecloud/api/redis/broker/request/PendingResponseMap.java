@@ -0,0 +1,67 @@
+package de.redstonecloud.api.redis.broker.request;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * Pending responses keyed by their 64-bit correlation id.
+ * <p>
+ * The map is split into lock-striped primitive maps, so concurrent requests and responses
+ * rarely contend and no key is ever boxed.
+ */
+public class PendingResponseMap {
+    protected final Long2ObjectOpenHashMap<PendingResponse<?>>[] stripes;
+    protected final int mask;
+
+    @SuppressWarnings("unchecked")
+    public PendingResponseMap(int concurrency) {
+        int size = HashCommon.nextPowerOfTwo(Math.max(1, concurrency));
+        this.stripes = new Long2ObjectOpenHashMap[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Long2ObjectOpenHashMap<>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return false if another request is already waiting under the same id
+     */
+    public boolean add(PendingResponse<?> response) {
+        Long2ObjectOpenHashMap<PendingResponse<?>> stripe = stripe(response.getId());
+        synchronized (stripe) {
+            return stripe.putIfAbsent(response.getId(), response) == null;
+        }
+    }
+
+    public PendingResponse<?> get(long id) {
+        Long2ObjectOpenHashMap<PendingResponse<?>> stripe = stripe(id);
+        synchronized (stripe) {
+            return stripe.get(id);
+        }
+    }
+
+    /**
+     * Removes the entry only if it still maps to the given response.
+     */
+    public boolean remove(PendingResponse<?> response) {
+        Long2ObjectOpenHashMap<PendingResponse<?>> stripe = stripe(response.getId());
+        synchronized (stripe) {
+            return stripe.remove(response.getId(), response);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Long2ObjectOpenHashMap<PendingResponse<?>> stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+
+        return size;
+    }
+
+    protected Long2ObjectOpenHashMap<PendingResponse<?>> stripe(long id) {
+        return this.stripes[(int) HashCommon.mix(id) & this.mask];
+    }
+}
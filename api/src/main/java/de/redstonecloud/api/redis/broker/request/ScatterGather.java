@@ -0,0 +1,73 @@
+package de.redstonecloud.api.redis.broker.request;
+
+import io.netty.util.Timeout;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the responses of one request sent to many routes until all routes,
+ * or at least {@code quorum} of them, answered or the deadline passed.
+ */
+@Getter
+public class ScatterGather<T> {
+    protected final Set<String> routes;
+    protected final int quorum;
+    protected final List<PendingResponse<T>> requests;
+    protected final Map<String, T> responses = new ConcurrentHashMap<>();
+    protected final CompletableFuture<ScatterResult<T>> future = new CompletableFuture<>();
+    protected final long createdAt = System.nanoTime();
+
+    @Setter
+    protected volatile Timeout timeout;
+
+    public ScatterGather(Set<String> routes, int quorum) {
+        this.routes = routes;
+        this.quorum = quorum <= 0 ? routes.size() : Math.min(quorum, routes.size());
+        this.requests = new ArrayList<>(routes.size());
+    }
+
+    public void track(String route, PendingResponse<T> pending) {
+        this.requests.add(pending);
+        pending.getFuture().thenAccept(response -> this.accept(route, response));
+    }
+
+    public void accept(String route, T response) {
+        this.responses.put(route, response);
+        if (this.responses.size() >= this.quorum) {
+            this.finish();
+        }
+    }
+
+    /**
+     * Completes the future with the responses collected so far.
+     *
+     * @return false if it was already completed
+     */
+    public boolean finish() {
+        if (this.future.isDone()) {
+            return false;
+        }
+
+        Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+
+        Map<String, T> responses = Map.copyOf(this.responses);
+        Set<String> missing = new LinkedHashSet<>(this.routes);
+        missing.removeAll(responses.keySet());
+
+        return this.future.complete(new ScatterResult<>(responses, Collections.unmodifiableSet(missing),
+                Duration.ofNanos(System.nanoTime() - this.createdAt)));
+    }
+}
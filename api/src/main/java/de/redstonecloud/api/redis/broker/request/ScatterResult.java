@@ -0,0 +1,18 @@
+package de.redstonecloud.api.redis.broker.request;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Responses collected by a scatter-gather request.
+ *
+ * @param responses responses by route
+ * @param missing   routes that did not answer before the deadline or quorum was reached
+ * @param elapsed   time from sending the requests until the result was completed
+ */
+public record ScatterResult<T>(Map<String, T> responses, Set<String> missing, Duration elapsed) {
+    public boolean isComplete() {
+        return missing.isEmpty();
+    }
+}
@@ -0,0 +1,25 @@
+package de.redstonecloud.api.redis.broker.transport;
+
+import redis.clients.jedis.Pipeline;
+
+/**
+ * Carries encoded broker payloads between brokers.
+ * <p>
+ * The publish side is driven by the broker's publish pipeline, which hands every payload to the transport
+ * of its target route. The receive side runs on threads owned by the transport.
+ */
+public interface BrokerTransport {
+    TransportType type();
+
+    /**
+     * Appends the command that delivers the payload to the route.
+     */
+    void write(Pipeline pipeline, byte[] route, byte[] payload);
+
+    /**
+     * Starts receiving the given routes. Every payload is passed to the handler on a transport thread.
+     */
+    void start(String[] routes, PayloadHandler handler);
+
+    void shutdown();
+}
@@ -0,0 +1,6 @@
+package de.redstonecloud.api.redis.broker.transport;
+
+@FunctionalInterface
+public interface PayloadHandler {
+    void handle(String route, byte[] payload);
+}
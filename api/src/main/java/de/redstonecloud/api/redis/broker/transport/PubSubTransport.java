@@ -0,0 +1,112 @@
+package de.redstonecloud.api.redis.broker.transport;
+
+import de.redstonecloud.api.redis.RedisConnectionManager;
+import de.redstonecloud.api.redis.RedisShards;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Redis pub/sub transport. Every route is published on the shard it hashes to,
+ * and one subscriber connection per shard listens to the routes living there.
+ */
+public class PubSubTransport implements BrokerTransport {
+    protected final RedisConnectionManager connectionManager;
+    protected final RedisShards shards;
+
+    protected final Jedis[] subscribers;
+    protected final Subscription[] subscriptions;
+    private volatile boolean running = false;
+
+    public PubSubTransport(RedisConnectionManager connectionManager) {
+        RedisShards shards = connectionManager.getShards();
+        this.connectionManager = connectionManager;
+        this.shards = shards;
+        this.subscribers = new Jedis[shards.size()];
+        this.subscriptions = new Subscription[shards.size()];
+    }
+
+    @Override
+    public TransportType type() {
+        return TransportType.PUBSUB;
+    }
+
+    @Override
+    public void write(Pipeline pipeline, byte[] route, byte[] payload) {
+        pipeline.publish(route, payload);
+    }
+
+    @Override
+    public void start(String[] routes, PayloadHandler handler) {
+        this.running = true;
+
+        String[][] shardRoutes = RoutePartitioner.byShard(this.shards, routes);
+        for (int shard = 0; shard < shardRoutes.length; shard++) {
+            if (shardRoutes[shard].length == 0) {
+                continue;
+            }
+
+            int index = shard;
+            Subscription subscription = new Subscription(handler);
+            this.subscriptions[shard] = subscription;
+
+            byte[][] channels = new byte[shardRoutes[shard].length][];
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] = shardRoutes[shard][i].getBytes(StandardCharsets.UTF_8);
+            }
+
+            new Thread(() -> {
+                while (this.running) {
+                    try (Jedis jedis = this.connectionManager.connect(index)) {
+
+                        this.subscribers[index] = jedis;
+                        jedis.subscribe(subscription, channels);
+                    } catch (Exception e) {
+                        if (!this.running) {
+                            break;
+                        }
+
+                        try {
+                            Thread.sleep(1000L); // backoff before reconnect
+                        } catch (InterruptedException ignored) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+            }, this.shards.size() == 1 ? "Redis-Subscriber" : "Redis-Subscriber-" + shard).start();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        this.running = false;
+
+        for (Subscription subscription : this.subscriptions) {
+            if (subscription != null && subscription.isSubscribed()) {
+                subscription.unsubscribe();
+            }
+        }
+
+        for (Jedis subscriber : this.subscribers) {
+            if (subscriber != null) {
+                subscriber.close();
+            }
+        }
+    }
+
+    protected static class Subscription extends BinaryJedisPubSub {
+        private final PayloadHandler handler;
+
+        protected Subscription(PayloadHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void onMessage(byte[] channel, byte[] payload) {
+            this.handler.handle(new String(channel, StandardCharsets.UTF_8), payload);
+        }
+    }
+}
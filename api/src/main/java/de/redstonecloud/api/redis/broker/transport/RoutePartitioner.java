@@ -0,0 +1,31 @@
+package de.redstonecloud.api.redis.broker.transport;
+
+import de.redstonecloud.api.redis.RedisShards;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+final class RoutePartitioner {
+    private RoutePartitioner() {
+    }
+
+    /**
+     * Groups the routes by the shard they hash to, indexed by shard.
+     */
+    @SuppressWarnings("unchecked")
+    static String[][] byShard(RedisShards shards, String[] routes) {
+        ObjectArrayList<String>[] grouped = new ObjectArrayList[shards.size()];
+        for (int i = 0; i < grouped.length; i++) {
+            grouped[i] = new ObjectArrayList<>();
+        }
+
+        for (String route : routes) {
+            grouped[shards.shardOf(route.toLowerCase())].add(route);
+        }
+
+        String[][] result = new String[grouped.length][];
+        for (int i = 0; i < grouped.length; i++) {
+            result[i] = grouped[i].toArray(new String[0]);
+        }
+
+        return result;
+    }
+}
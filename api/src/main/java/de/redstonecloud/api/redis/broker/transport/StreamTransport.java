@@ -0,0 +1,212 @@
+package de.redstonecloud.api.redis.broker.transport;
+
+import de.redstonecloud.api.redis.RedisConnectionManager;
+import de.redstonecloud.api.redis.RedisShards;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XAddParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntryBinary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis Streams transport.
+ * <p>
+ * Every route is a stream at {@code broker:stream:<route>}, trimmed to roughly {@code maxLength} entries.
+ * Each receiving broker reads its routes through its own consumer group, so every receiver sees every
+ * payload like with pub/sub. Entries are read in batches and acknowledged once they were handed over.
+ * After a reconnect the reader first replays its unacknowledged entries and then continues with new ones.
+ * Streams live on the shard their route hashes to, with one reader connection per shard.
+ */
+public class StreamTransport implements BrokerTransport {
+    public static final String KEY_PREFIX = "broker:stream:";
+
+    private static final byte[] KEY_PREFIX_BYTES = KEY_PREFIX.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FIELD_PAYLOAD = "p".getBytes(StandardCharsets.UTF_8);
+    private static final StreamEntryID PENDING = new StreamEntryID(0, 0);
+    private static final byte[] LATEST = "$".getBytes(StandardCharsets.UTF_8);
+
+    protected final RedisConnectionManager connectionManager;
+    protected final RedisShards shards;
+
+    protected final byte[] group;
+    protected final long maxLength;
+    protected final int batchSize;
+    protected final int blockMillis;
+
+    protected final Jedis[] readers;
+    private volatile boolean running = false;
+
+    public StreamTransport(RedisConnectionManager connectionManager, String group, long maxLength, int batchSize, Duration blockTimeout) {
+        RedisShards shards = connectionManager.getShards();
+        this.connectionManager = connectionManager;
+        this.shards = shards;
+        this.readers = new Jedis[shards.size()];
+        this.group = group.toLowerCase().getBytes(StandardCharsets.UTF_8);
+        this.maxLength = maxLength;
+        this.batchSize = batchSize;
+        this.blockMillis = (int) blockTimeout.toMillis();
+    }
+
+    public static byte[] key(String route) {
+        return (KEY_PREFIX + route.toLowerCase()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public TransportType type() {
+        return TransportType.STREAM;
+    }
+
+    @Override
+    public void write(Pipeline pipeline, byte[] route, byte[] payload) {
+        byte[] key = Arrays.copyOf(KEY_PREFIX_BYTES, KEY_PREFIX_BYTES.length + route.length);
+        System.arraycopy(route, 0, key, KEY_PREFIX_BYTES.length, route.length);
+
+        pipeline.xadd(key, XAddParams.xAddParams().maxLen(this.maxLength).approximateTrimming(), Map.of(FIELD_PAYLOAD, payload));
+    }
+
+    @Override
+    public void start(String[] routes, PayloadHandler handler) {
+        this.running = true;
+
+        String[][] shardRoutes = RoutePartitioner.byShard(this.shards, routes);
+        for (int shard = 0; shard < shardRoutes.length; shard++) {
+            if (shardRoutes[shard].length == 0) {
+                continue;
+            }
+
+            int index = shard;
+            String[] readRoutes = shardRoutes[shard];
+
+            Thread thread = new Thread(() -> {
+                while (this.running) {
+                    try (Jedis jedis = this.connectionManager.connect(index)) {
+                        this.readers[index] = jedis;
+
+                        read(jedis, readRoutes, handler);
+                    } catch (Exception e) {
+                        if (!this.running) {
+                            break;
+                        }
+
+                        try {
+                            Thread.sleep(1000L); // backoff before reconnect
+                        } catch (InterruptedException ignored) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+            }, this.shards.size() == 1 ? "Redis-Stream-Reader" : "Redis-Stream-Reader-" + shard);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        this.running = false;
+
+        for (Jedis reader : this.readers) {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    protected void read(Jedis jedis, String[] routes, PayloadHandler handler) {
+        Stream[] streams = new Stream[routes.length];
+        for (int i = 0; i < routes.length; i++) {
+            streams[i] = new Stream(routes[i].toLowerCase(), key(routes[i]));
+            createGroup(jedis, streams[i].key);
+        }
+
+        XReadGroupParams params = XReadGroupParams.xReadGroupParams()
+                .count(this.batchSize)
+                .block(this.blockMillis);
+
+        while (this.running) {
+            Map<byte[], StreamEntryID> offsets = new LinkedHashMap<>();
+            for (Stream stream : streams) {
+                offsets.put(stream.key, stream.replaying ? PENDING : StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY);
+            }
+
+            List<Map.Entry<byte[], List<StreamEntryBinary>>> response = jedis.xreadGroupBinary(this.group, this.group, params, offsets);
+            if (response == null) {
+                continue;
+            }
+
+            for (Map.Entry<byte[], List<StreamEntryBinary>> streamResponse : response) {
+                Stream stream = find(streams, streamResponse.getKey());
+                List<StreamEntryBinary> entries = streamResponse.getValue();
+
+                if (stream.replaying && entries.isEmpty()) {
+                    stream.replaying = false;
+                    continue;
+                }
+
+                ObjectArrayList<byte[]> ids = new ObjectArrayList<>(entries.size());
+                for (StreamEntryBinary entry : entries) {
+                    ids.add(entry.getID().toString().getBytes(StandardCharsets.UTF_8));
+
+                    // fields are null if the entry was trimmed while it was pending
+                    Map<byte[], byte[]> fields = entry.getFields();
+                    if (fields == null) {
+                        continue;
+                    }
+
+                    // byte[] keys only compare by identity, so the field is looked up by content
+                    for (Map.Entry<byte[], byte[]> field : fields.entrySet()) {
+                        if (Arrays.equals(field.getKey(), FIELD_PAYLOAD)) {
+                            handler.handle(stream.route, field.getValue());
+                        }
+                    }
+                }
+
+                if (!ids.isEmpty()) {
+                    jedis.xack(stream.key, this.group, ids.toArray(new byte[0][]));
+                }
+            }
+        }
+    }
+
+    protected void createGroup(Jedis jedis, byte[] key) {
+        try {
+            jedis.xgroupCreate(key, this.group, LATEST, true);
+        } catch (JedisDataException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    private Stream find(Stream[] streams, byte[] key) {
+        for (Stream stream : streams) {
+            if (Arrays.equals(stream.key, key)) {
+                return stream;
+            }
+        }
+
+        throw new IllegalStateException("Unknown stream " + new String(key, StandardCharsets.UTF_8));
+    }
+
+    protected static class Stream {
+        protected final String route;
+        protected final byte[] key;
+        protected boolean replaying = true;
+
+        protected Stream(String route, byte[] key) {
+            this.route = route;
+            this.key = key;
+        }
+    }
+}
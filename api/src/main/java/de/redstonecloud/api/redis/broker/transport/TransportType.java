@@ -0,0 +1,13 @@
+package de.redstonecloud.api.redis.broker.transport;
+
+public enum TransportType {
+    /**
+     * Redis pub/sub. Payloads published while a receiver is disconnected are lost.
+     */
+    PUBSUB,
+    /**
+     * Redis Streams with one consumer group per receiving broker. Receivers continue after their last
+     * acknowledged payload when they reconnect.
+     */
+    STREAM
+}
@@ -1,110 +1,651 @@
 package de.redstonecloud.api.redis.cache;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+import de.redstonecloud.api.components.cache.ServerData;
+import de.redstonecloud.api.redis.RedisConnectionManager;
+import de.redstonecloud.api.redis.RedisShards;
+import de.redstonecloud.api.util.Keys;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import lombok.Getter;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+/**
+ * Key-value access to Redis. With several Redis shards configured every key lives on the shard
+ * {@link RedisShards#shardOf(String)} picks, multi-key operations are split per shard.
+ * Reads of keys covered by the {@link NearCache} are served locally when possible.
+ * {@link Cacheable} updates are written behind by the {@link WriteBehindCache} unless it is disabled,
+ * in {@link CacheMode#HASH} {@link HashCacheable}s are stored field by field through the {@link HashWriter}.
+ */
 @Getter
 public class Cache {
-    protected static JedisPool singletonPool;
+    public static final String CLIENT = "cache";
+    public static final RedisConnectionManager.PoolSize POOL_SIZE = new RedisConnectionManager.PoolSize(16, 64, 256);
 
-    protected static void createJedisPool() {
-        JedisPoolConfig config = new JedisPoolConfig();
-        config.setMinIdle(16);
-        config.setMaxIdle(64);
-        config.setMaxTotal(256);
-        config.setBlockWhenExhausted(true);
-        config.setTestOnBorrow(true);
-
-        String addr = System.getenv("REDIS_IP") != null ? System.getenv("REDIS_IP") : System.getProperty("redis.bind");
-        int port = Integer.parseInt(System.getenv("REDIS_PORT") != null ? System.getenv("REDIS_PORT") : System.getProperty("redis.port"));
-        int db = Integer.parseInt(System.getenv("REDIS_DB") != null ? System.getenv("REDIS_DB") : System.getProperty("redis.db"));
+    protected static RedisShards singletonShards;
+    protected static JedisPool[] singletonPools;
+    protected static NearCache singletonNearCache;
+    protected static WriteBehindCache singletonWriteBehind;
+    protected static HashWriter singletonHashWriter;
+    protected static CacheMode singletonMode;
 
-        singletonPool = new JedisPool(config, addr, port, 0, null, db);
+    protected static void createJedisPool() {
+        RedisConnectionManager connections = RedisConnectionManager.get();
+        singletonShards = connections.getShards();
+        singletonPools = connections.pools(CLIENT, POOL_SIZE);
+        singletonNearCache = NearCache.fromEnvironment(connections);
+        singletonMode = CacheMode.fromEnvironment();
+        singletonHashWriter = singletonMode == CacheMode.HASH ? new HashWriter() : null;
+        singletonWriteBehind = WriteBehindCache.fromEnvironment(singletonShards, singletonPools, singletonNearCache, singletonHashWriter);
     }
 
-    protected JedisPool pool;
+    protected RedisShards shards;
+    protected JedisPool[] pools;
+    protected NearCache nearCache;
+    protected WriteBehindCache writeBehind;
+    protected HashWriter hashWriter;
+    protected CacheMode mode;
 
     public Cache() {
-        if (Cache.singletonPool == null) {
+        if (Cache.singletonPools == null) {
             createJedisPool();
         }
 
-        this.pool = Cache.singletonPool;
+        this.shards = Cache.singletonShards;
+        this.pools = Cache.singletonPools;
+        this.nearCache = Cache.singletonNearCache;
+        this.writeBehind = Cache.singletonWriteBehind;
+        this.hashWriter = Cache.singletonHashWriter;
+        this.mode = Cache.singletonMode;
+    }
+
+    /**
+     * Returns the pool of the shard the key lives on.
+     */
+    public JedisPool pool(String key) {
+        return this.pools[this.shards.shardOf(key)];
     }
 
     public String set(String key, String value) {
-        try (Jedis jedis = this.pool.getResource()) {
+        try (Jedis jedis = this.pool(key).getResource()) {
             return jedis.set(key, value);
+        } finally {
+            this.invalidateNear(key);
         }
     }
 
     public String set(String key, String value, long seconds) {
-        try (Jedis jedis = this.pool.getResource()) {
-            String ret = jedis.set(key, value);
-            if(seconds != -1L) jedis.expire(key, seconds);
-            return ret;
+        try (Jedis jedis = this.pool(key).getResource()) {
+            return seconds != -1L ? jedis.set(key, value, SetParams.setParams().ex(seconds)) : jedis.set(key, value);
+        } finally {
+            this.invalidateNear(key);
         }
     }
 
-    public void setList(String key, Collection<String> collection) {
-        Preconditions.checkArgument(!collection.isEmpty(), "List cannot be empty");
-        try (Jedis jedis = this.pool.getResource()) {
-            jedis.del(key);
+    /**
+     * Writes the state of the object, deferred to the next write-behind flush if enabled.
+     */
+    public void update(Cacheable cacheable) {
+        if (this.writeBehind != null) {
+            this.writeBehind.markDirty(cacheable);
+        } else if (this.hashWriter != null && cacheable instanceof HashCacheable hashCacheable) {
+            try {
+                this.hashWriter.write(this.pool(cacheable.cacheKey()), hashCacheable);
+            } finally {
+                this.invalidateNear(cacheable.cacheKey());
+            }
+        } else {
+            this.set(cacheable.cacheKey(), cacheable.toString(), cacheable.expireSeconds());
+        }
+    }
 
-            for (String element : collection) {
-                jedis.rpush(key, element);
+    /**
+     * Deletes the stored state of the object, including the sets of a {@link HashCacheable} in {@link CacheMode#HASH}.
+     */
+    public long reset(Cacheable cacheable) {
+        if (this.hashWriter != null && cacheable instanceof HashCacheable hashCacheable) {
+            List<String> keys = new ArrayList<>();
+            keys.add(cacheable.cacheKey());
+            keys.addAll(hashCacheable.cacheSets().keySet());
+            return this.delete(keys.toArray(new String[0]));
+        }
+
+        return this.delete(cacheable.cacheKey());
+    }
+
+    /**
+     * Writes all deferred {@link Cacheable} updates and stops deferring, later updates are written directly.
+     */
+    public void shutdownWriteBehind() {
+        if (this.writeBehind != null) {
+            this.writeBehind.shutdown();
+        }
+    }
+
+    /**
+     * Moves the player to another server in one atomic step: sets the {@code server} field of the player entry
+     * and moves the player between the connected players of both server entries. Entries that are not stored yet
+     * are skipped. With several shards only the entries on the same shard change together.
+     *
+     * @param from name of the previous server, {@code null} if none
+     * @param to   name of the new server, {@code null} if none
+     */
+    public void transferPlayer(UUID player, String from, String to) {
+        this.transfer(player, "server", from, to);
+    }
+
+    /**
+     * Like {@link #transferPlayer(UUID, String, String)} for the {@code network} (proxy) of the player.
+     */
+    public void transferPlayerNetwork(UUID player, String from, String to) {
+        this.transfer(player, "network", from, to);
+    }
+
+    /**
+     * Sets the status field of a stored server entry in one step, without rewriting the rest of it.
+     *
+     * @return false if the server is not stored
+     */
+    public boolean setServerStatus(String name, String status) {
+        String key = Keys.CACHE_PREFIX_SERVER + name.toUpperCase();
+        CacheScript script = this.hashWriter != null ? CacheScripts.SET_SERVER_STATUS_HASH : CacheScripts.SET_SERVER_STATUS_JSON;
+
+        try {
+            return this.exclusive(() -> {
+                try (Jedis jedis = this.pool(key).getResource()) {
+                    boolean updated = Long.valueOf(1L).equals(script.eval(jedis, List.of(key), List.of(status)));
+                    if (updated && this.hashWriter != null) {
+                        this.hashWriter.applyField(key, "status", status);
+                    }
+
+                    return updated;
+                }
+            });
+        } finally {
+            this.invalidateNear(key);
+        }
+    }
+
+    protected void transfer(UUID player, String field, String from, String to) {
+        String playerKey = Keys.CACHE_PREFIX_PLAYER + player;
+        String fromKey = from != null ? Keys.CACHE_PREFIX_SERVER + from.toUpperCase() : null;
+        String toKey = to != null ? Keys.CACHE_PREFIX_SERVER + to.toUpperCase() : null;
+        boolean hash = this.hashWriter != null;
+        CacheScript script = hash ? CacheScripts.TRANSFER_PLAYER_HASH : CacheScripts.TRANSFER_PLAYER_JSON;
+
+        // every key with its role, one script call per shard
+        ObjectArrayList<String>[] keys = group(3);
+        ObjectArrayList<String>[] roles = group(3);
+        keys[this.shards.shardOf(playerKey)].add(playerKey);
+        roles[this.shards.shardOf(playerKey)].add("player");
+        if (fromKey != null) {
+            keys[this.shards.shardOf(fromKey)].add(hash ? ServerData.playersKey(fromKey) : fromKey);
+            roles[this.shards.shardOf(fromKey)].add("from");
+        }
+        if (toKey != null) {
+            keys[this.shards.shardOf(toKey)].add(hash ? ServerData.playersKey(toKey) : toKey);
+            roles[this.shards.shardOf(toKey)].add("to");
+        }
+
+        try {
+            this.exclusive(() -> {
+                for (int shard = 0; shard < keys.length; shard++) {
+                    if (keys[shard].isEmpty()) {
+                        continue;
+                    }
+
+                    List<String> args = new ArrayList<>(List.of(player.toString(), field, to != null ? to : ""));
+                    args.addAll(roles[shard]);
+                    try (Jedis jedis = this.pools[shard].getResource()) {
+                        script.eval(jedis, keys[shard], args);
+                    }
+                }
+
+                if (hash) {
+                    this.hashWriter.applyField(playerKey, field, to);
+                    if (fromKey != null) {
+                        this.hashWriter.applyMember(fromKey, ServerData.playersKey(fromKey), player.toString(), false);
+                    }
+                    if (toKey != null) {
+                        this.hashWriter.applyMember(toKey, ServerData.playersKey(toKey), player.toString(), true);
+                    }
+                }
+
+                return null;
+            });
+        } finally {
+            this.invalidateNear(playerKey);
+            if (fromKey != null) {
+                this.invalidateNear(fromKey);
+            }
+            if (toKey != null) {
+                this.invalidateNear(toKey);
             }
         }
     }
 
+    /**
+     * Runs the action while neither a write-behind flush nor a hash write is in progress,
+     * so the snapshots of the {@link HashWriter} stay in line with what is stored.
+     */
+    protected <T> T exclusive(Supplier<T> action) {
+        if (this.writeBehind != null) {
+            return this.writeBehind.exclusive(action);
+        }
+
+        if (this.hashWriter != null) {
+            synchronized (this.hashWriter) {
+                return action.get();
+            }
+        }
+
+        return action.get();
+    }
+
+    public void setList(String key, Collection<String> collection) {
+        Preconditions.checkArgument(!collection.isEmpty(), "List cannot be empty");
+        try (Jedis jedis = this.pool(key).getResource()) {
+            // one round trip, and readers never see the list missing or half filled
+            Transaction transaction = jedis.multi();
+            transaction.del(key);
+            transaction.rpush(key, collection.toArray(new String[0]));
+            transaction.exec();
+        } finally {
+            this.invalidateNear(key);
+        }
+    }
+
     public String setMany(String... keysValues) {
         Preconditions.checkArgument(keysValues.length % 2 == 0, "Each key must have a value");
-        try (Jedis jedis = this.pool.getResource()) {
-            return jedis.mset(keysValues);
+        try {
+            return this.storeMany(keysValues);
+        } finally {
+            for (int i = 0; i < keysValues.length; i += 2) {
+                this.invalidateNear(keysValues[i]);
+            }
+        }
+    }
+
+    protected String storeMany(String... keysValues) {
+        if (this.pools.length == 1) {
+            try (Jedis jedis = this.pools[0].getResource()) {
+                return jedis.mset(keysValues);
+            }
+        }
+
+        ObjectArrayList<String>[] grouped = group(keysValues.length / 2);
+        for (int i = 0; i < keysValues.length; i += 2) {
+            ObjectArrayList<String> shard = grouped[this.shards.shardOf(keysValues[i])];
+            shard.add(keysValues[i]);
+            shard.add(keysValues[i + 1]);
+        }
+
+        String ret = "OK";
+        for (int shard = 0; shard < grouped.length; shard++) {
+            if (grouped[shard].isEmpty()) {
+                continue;
+            }
+
+            try (Jedis jedis = this.pools[shard].getResource()) {
+                ret = jedis.mset(grouped[shard].toArray(new String[0]));
+            }
         }
+
+        return ret;
     }
 
     public String get(String key) {
-        try (Jedis jedis = this.pool.getResource()) {
+        String pending = this.pending(key);
+        if (pending != null) {
+            return pending;
+        }
+
+        if (this.nearCache != null && this.nearCache.covers(key)) {
+            return this.nearCache.get(key, () -> this.load(key));
+        }
+
+        return this.load(key);
+    }
+
+    protected String load(String key) {
+        try (Jedis jedis = this.pool(key).getResource()) {
             return jedis.get(key);
         }
     }
 
     public List<String> getMany(String... keys) {
-        try (Jedis jedis = this.pool.getResource()) {
-            return jedis.mget(keys);
+        List<String> values = this.readMany(keys);
+        if (this.writeBehind != null) {
+            for (int i = 0; i < keys.length; i++) {
+                String pending = this.writeBehind.pending(keys[i]);
+                if (pending != null) {
+                    values.set(i, pending);
+                }
+            }
+        }
+
+        return values;
+    }
+
+    protected List<String> readMany(String... keys) {
+        if (this.nearCache == null) {
+            return this.loadMany(keys);
+        }
+
+        // serve covered keys locally and only ask Redis for the rest
+        String[] values = new String[keys.length];
+        IntArrayList missing = new IntArrayList();
+        for (int i = 0; i < keys.length; i++) {
+            Object entry = this.nearCache.covers(keys[i]) ? this.nearCache.lookup(keys[i]) : null;
+            if (entry != null) {
+                values[i] = NearCache.unwrap(entry);
+            } else {
+                missing.add(i);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return Arrays.asList(values);
+        }
+
+        String[] missingKeys = new String[missing.size()];
+        for (int i = 0; i < missingKeys.length; i++) {
+            missingKeys[i] = keys[missing.getInt(i)];
         }
+
+        long epoch = this.nearCache.epoch();
+        List<String> loaded = this.loadMany(missingKeys);
+        for (int i = 0; i < missingKeys.length; i++) {
+            values[missing.getInt(i)] = loaded.get(i);
+            if (this.nearCache.covers(missingKeys[i])) {
+                this.nearCache.putIfUnchanged(missingKeys[i], loaded.get(i), epoch);
+            }
+        }
+
+        return Arrays.asList(values);
+    }
+
+    protected List<String> loadMany(String... keys) {
+        if (this.pools.length == 1) {
+            try (Jedis jedis = this.pools[0].getResource()) {
+                return jedis.mget(keys);
+            }
+        }
+
+        // remember where every key came from so the values keep the order of the keys
+        IntArrayList[] positions = new IntArrayList[this.pools.length];
+        for (int i = 0; i < keys.length; i++) {
+            int shard = this.shards.shardOf(keys[i]);
+            if (positions[shard] == null) {
+                positions[shard] = new IntArrayList();
+            }
+
+            positions[shard].add(i);
+        }
+
+        String[] values = new String[keys.length];
+        for (int shard = 0; shard < positions.length; shard++) {
+            if (positions[shard] == null) {
+                continue;
+            }
+
+            String[] shardKeys = new String[positions[shard].size()];
+            for (int i = 0; i < shardKeys.length; i++) {
+                shardKeys[i] = keys[positions[shard].getInt(i)];
+            }
+
+            try (Jedis jedis = this.pools[shard].getResource()) {
+                List<String> shardValues = jedis.mget(shardKeys);
+                for (int i = 0; i < shardKeys.length; i++) {
+                    values[positions[shard].getInt(i)] = shardValues.get(i);
+                }
+            }
+        }
+
+        return Arrays.asList(values);
     }
 
     public List<String> getList(String key) {
-        try (Jedis jedis = this.pool.getResource()) {
+        if (this.nearCache != null && this.nearCache.covers(key)) {
+            // cached lists are shared, callers get their own copy
+            List<String> list = this.nearCache.get(key, () -> List.copyOf(this.loadList(key)));
+            return new ArrayList<>(list);
+        }
+
+        return this.loadList(key);
+    }
+
+    protected List<String> loadList(String key) {
+        try (Jedis jedis = this.pool(key).getResource()) {
             return jedis.lrange(key, 0, -1);
         }
     }
 
     public long delete(String... keys) {
         Preconditions.checkArgument(keys.length > 0, "Keys cannot be empty");
-        try (Jedis jedis = this.pool.getResource()) {
-            return jedis.del(keys);
+        try {
+            Supplier<Long> delete = () -> {
+                if (this.hashWriter != null) {
+                    for (String key : keys) {
+                        this.hashWriter.forget(key);
+                    }
+                }
+
+                return this.deleteMany(keys);
+            };
+
+            return this.writeBehind != null ? this.writeBehind.discard(keys, delete) : delete.get();
+        } finally {
+            for (String key : keys) {
+                this.invalidateNear(key);
+            }
+        }
+    }
+
+    protected long deleteMany(String... keys) {
+        if (this.pools.length == 1) {
+            try (Jedis jedis = this.pools[0].getResource()) {
+                return jedis.del(keys);
+            }
+        }
+
+        ObjectArrayList<String>[] grouped = group(keys.length);
+        for (String key : keys) {
+            grouped[this.shards.shardOf(key)].add(key);
+        }
+
+        long deleted = 0;
+        for (int shard = 0; shard < grouped.length; shard++) {
+            if (grouped[shard].isEmpty()) {
+                continue;
+            }
+
+            try (Jedis jedis = this.pools[shard].getResource()) {
+                deleted += jedis.del(grouped[shard].toArray(new String[0]));
+            }
+        }
+
+        return deleted;
+    }
+
+    public Map<String, String> getHash(String key) {
+        try (Jedis jedis = this.pool(key).getResource()) {
+            return jedis.hgetAll(key);
+        }
+    }
+
+    public Set<String> getSet(String key) {
+        try (Jedis jedis = this.pool(key).getResource()) {
+            return jedis.smembers(key);
         }
     }
 
     public boolean exists(String key) {
-        try (Jedis jedis = this.pool.getResource()) {
+        try (Jedis jedis = this.pool(key).getResource()) {
             return jedis.exists(key);
         }
     }
 
+    /**
+     * Blocks Redis while it walks the whole keyspace, use {@link #scan(String, int)} instead.
+     */
+    @Deprecated
     public Set<String> keys(String prefix) {
-        try (Jedis jedis = this.pool.getResource()) {
-            return jedis.keys(prefix);
+        if (this.pools.length == 1) {
+            try (Jedis jedis = this.pools[0].getResource()) {
+                return jedis.keys(prefix);
+            }
+        }
+
+        Set<String> keys = new HashSet<>();
+        for (JedisPool pool : this.pools) {
+            try (Jedis jedis = pool.getResource()) {
+                keys.addAll(jedis.keys(prefix));
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Lazily iterates the keys matching the glob pattern with cursor-based {@code SCAN}, one shard after the other.
+     * Every page is requested when the previous one was consumed, so Redis is never blocked for the whole keyspace.
+     * Like {@code SCAN} itself, a key may be returned more than once and keys changed during the iteration
+     * may be missed.
+     *
+     * @param batchSize {@code COUNT} hint of every {@code SCAN} call
+     */
+    public Stream<String> scan(String pattern, int batchSize) {
+        return Streams.stream(new ScanIterator(pattern, batchSize, false))
+                .flatMap(page -> page.keys().stream());
+    }
+
+    /**
+     * Like {@link #scan(String, int)}, but also fetches the string values of every page with {@code MGET}.
+     * The {@code MGET} of a page is pipelined with the {@code SCAN} of the next one, one round trip per page.
+     * Keys that vanished or hold no string value are skipped, values still waiting for the write-behind flush
+     * are returned instead of the stored ones.
+     */
+    public Stream<Map.Entry<String, String>> scanValues(String pattern, int batchSize) {
+        return Streams.stream(new ScanIterator(pattern, batchSize, true))
+                .flatMap(page -> IntStream.range(0, page.keys().size())
+                        .mapToObj(i -> {
+                            String key = page.keys().get(i);
+                            String pending = this.pending(key);
+                            String value = pending != null ? pending : page.values().get(i);
+                            return value != null ? Map.entry(key, value) : null;
+                        })
+                        .filter(entry -> entry != null));
+    }
+
+    /**
+     * @return the JSON state of a {@link Cacheable} with the key that was not written yet, or {@code null}
+     */
+    public String pending(String key) {
+        return this.writeBehind != null ? this.writeBehind.pending(key) : null;
+    }
+
+    /**
+     * Drops a locally cached value after writing the key, so this process reads its own writes
+     * without waiting for the invalidation from Redis.
+     */
+    protected void invalidateNear(String key) {
+        if (this.nearCache != null) {
+            this.nearCache.invalidate(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectArrayList<String>[] group(int expected) {
+        ObjectArrayList<String>[] grouped = new ObjectArrayList[this.pools.length];
+        for (int i = 0; i < grouped.length; i++) {
+            grouped[i] = new ObjectArrayList<>(expected / grouped.length + 1);
+        }
+
+        return grouped;
+    }
+
+    /**
+     * Pages of one {@code SCAN} per shard. Each step requests the next page together with the values of the
+     * page scanned before, which it then returns.
+     */
+    private class ScanIterator extends AbstractIterator<ScanPage> {
+        private final ScanParams params;
+        private final boolean values;
+
+        private int shard = 0;
+        private String cursor = ScanParams.SCAN_POINTER_START;
+        private boolean complete = false;
+        // scanned but not returned yet
+        private List<String> scanned;
+
+        private ScanIterator(String pattern, int batchSize, boolean values) {
+            this.params = new ScanParams().match(pattern).count(batchSize);
+            this.values = values;
         }
+
+        @Override
+        protected ScanPage computeNext() {
+            while (this.shard < Cache.this.pools.length) {
+                List<String> current = this.scanned;
+                if (current == null && this.complete) {
+                    this.shard++;
+                    this.cursor = ScanParams.SCAN_POINTER_START;
+                    this.complete = false;
+                    continue;
+                }
+
+                Response<ScanResult<String>> scan = null;
+                Response<List<String>> fetched = null;
+                try (Jedis jedis = Cache.this.pools[this.shard].getResource()) {
+                    Pipeline pipeline = jedis.pipelined();
+                    if (!this.complete) {
+                        scan = pipeline.scan(this.cursor, this.params);
+                    }
+                    if (this.values && current != null && !current.isEmpty()) {
+                        fetched = pipeline.mget(current.toArray(new String[0]));
+                    }
+                    pipeline.sync();
+                }
+
+                this.scanned = null;
+                if (scan != null) {
+                    ScanResult<String> result = scan.get();
+                    this.cursor = result.getCursor();
+                    this.complete = result.isCompleteIteration();
+                    this.scanned = result.getResult();
+                }
+
+                if (current != null && !current.isEmpty()) {
+                    return new ScanPage(current, fetched != null ? fetched.get() : null);
+                }
+            }
+
+            return this.endOfData();
+        }
+    }
+
+    private record ScanPage(List<String> keys, List<String> values) {
     }
 }
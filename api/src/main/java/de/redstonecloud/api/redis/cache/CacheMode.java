@@ -0,0 +1,26 @@
+package de.redstonecloud.api.redis.cache;
+
+import de.redstonecloud.api.util.Keys;
+
+/**
+ * How {@link Cacheable} state is stored in Redis.
+ */
+public enum CacheMode {
+    /**
+     * The whole state as one JSON string, rewritten on every change.
+     */
+    JSON,
+    /**
+     * {@link HashCacheable} state as a Redis hash plus sets, only changed fields and members are written.
+     * Other {@link Cacheable}s are still stored as JSON.
+     */
+    HASH;
+
+    /**
+     * Mode configured by {@code CACHE_MODE}, {@link #JSON} if unset.
+     */
+    public static CacheMode fromEnvironment() {
+        String mode = System.getenv(Keys.ENV_CACHE_MODE) != null ? System.getenv(Keys.ENV_CACHE_MODE) : System.getProperty(Keys.PROPERTY_CACHE_MODE);
+        return mode == null || mode.isBlank() ? JSON : valueOf(mode.trim().toUpperCase());
+    }
+}
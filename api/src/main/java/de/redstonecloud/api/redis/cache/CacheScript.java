@@ -0,0 +1,41 @@
+package de.redstonecloud.api.redis.cache;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Lua script run atomically by Redis.
+ * <p>
+ * Scripts are called by their SHA1 with {@code EVALSHA}, so only the digest travels per call. If Redis does not
+ * know the script yet, e.g. after a restart, it is sent once with {@code EVAL}, which also caches it.
+ * All keys of one call have to live on the same shard.
+ */
+public class CacheScript {
+    private final String source;
+    private final String sha;
+
+    public CacheScript(String source) {
+        this.source = source;
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            this.sha = HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Object eval(Jedis jedis, List<String> keys, List<String> args) {
+        try {
+            return jedis.evalsha(this.sha, keys, args);
+        } catch (JedisNoScriptException e) {
+            return jedis.eval(this.source, keys, args);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package de.redstonecloud.api.redis.cache;
+
+/**
+ * Scripts behind the atomic operations of {@link Cache}, one per {@link CacheMode}.
+ * <p>
+ * The JSON variants splice the changed top-level fields into the stored documents and keep their TTL. The other
+ * fields, {@code extraData} included, are copied byte for byte: a {@code cjson} round trip would turn empty arrays
+ * into objects and round numbers with more than 14 significant digits.
+ */
+public interface CacheScripts {
+    String JSON_STORE = """
+            -- positions of the top-level values of a JSON object by field name
+            local function spans(raw)
+                local result, depth, key, start, i = {}, 0, nil, nil, 1
+                while true do
+                    i = string.find(raw, '["{}%[%]:,]', i)
+                    if not i then
+                        return result
+                    end
+                    local c = string.sub(raw, i, i)
+                    if c == '"' then
+                        local j = i + 1
+                        while true do
+                            j = string.find(raw, '["\\\\]', j)
+                            if string.sub(raw, j, j) == '"' then
+                                break
+                            end
+                            j = j + 2
+                        end
+                        if depth == 1 and key == nil then
+                            key = string.sub(raw, i + 1, j - 1)
+                        end
+                        i = j
+                    elseif c == '{' or c == '[' then
+                        depth = depth + 1
+                    elseif c == '}' or c == ']' then
+                        depth = depth - 1
+                        if depth == 0 and key then
+                            result[key] = {start, i - 1}
+                        end
+                    elseif depth == 1 then
+                        if c == ':' then
+                            start = string.find(raw, '%S', i + 1)
+                        else
+                            result[key] = {start, i - 1}
+                            key = nil
+                        end
+                    end
+                    i = i + 1
+                end
+            end
+
+            local function read(raw, name)
+                local span = spans(raw)[name]
+                return span and cjson.decode(string.sub(raw, span[1], span[2])) or nil
+            end
+
+            -- replaces the value of the field with the encoded value, or adds the field
+            local function put(raw, name, value)
+                local fields = spans(raw)
+                local span = fields[name]
+                if span then
+                    return string.sub(raw, 1, span[1] - 1) .. value .. string.sub(raw, span[2] + 1)
+                end
+                local close = string.find(raw, '}%s*$')
+                local separator = next(fields) and ',' or ''
+                return string.sub(raw, 1, close - 1) .. separator .. '"' .. name .. '":' .. value .. string.sub(raw, close)
+            end
+
+            local function store(key, raw)
+                local ttl = redis.call('PTTL', key)
+                redis.call('SET', key, raw)
+                if ttl > 0 then
+                    redis.call('PEXPIRE', key, ttl)
+                end
+            end
+            """;
+
+    /**
+     * KEYS: the player entry and the server entries, ARGV: uuid, player field, new server name or empty, then the role
+     * ({@code player}, {@code from} or {@code to}) of every key. Entries that do not exist are skipped.
+     */
+    CacheScript TRANSFER_PLAYER_JSON = new CacheScript(JSON_STORE + """
+            local uuid, field, target = ARGV[1], ARGV[2], ARGV[3]
+            for i, key in ipairs(KEYS) do
+                local raw = redis.call('GET', key)
+                if raw then
+                    local role = ARGV[3 + i]
+                    if role == 'player' then
+                        if target == '' then
+                            raw = put(raw, field, 'null')
+                        else
+                            raw = put(raw, field, cjson.encode(target))
+                        end
+                    else
+                        local players = {}
+                        local current = read(raw, 'connectedPlayers')
+                        for _, player in ipairs(type(current) == 'table' and current or {}) do
+                            if player ~= uuid then
+                                table.insert(players, player)
+                            end
+                        end
+                        if role == 'to' then
+                            table.insert(players, uuid)
+                        end
+                        raw = put(raw, 'connectedPlayers', #players > 0 and cjson.encode(players) or '[]')
+                    end
+                    store(key, raw)
+                end
+            end
+            return 1
+            """);
+
+    /**
+     * Like {@link #TRANSFER_PLAYER_JSON}, with the player hash and the connected players sets of the servers as keys.
+     */
+    CacheScript TRANSFER_PLAYER_HASH = new CacheScript("""
+            local uuid, field, target = ARGV[1], ARGV[2], ARGV[3]
+            for i, key in ipairs(KEYS) do
+                local role = ARGV[3 + i]
+                if role == 'player' then
+                    if redis.call('EXISTS', key) == 1 then
+                        if target == '' then
+                            redis.call('HDEL', key, field)
+                        else
+                            redis.call('HSET', key, field, target)
+                        end
+                    end
+                elseif role == 'from' then
+                    redis.call('SREM', key, uuid)
+                else
+                    redis.call('SADD', key, uuid)
+                end
+            end
+            return 1
+            """);
+
+    /**
+     * KEYS: the server entry, ARGV: the status. Returns 0 if the entry does not exist.
+     */
+    CacheScript SET_SERVER_STATUS_JSON = new CacheScript(JSON_STORE + """
+            local raw = redis.call('GET', KEYS[1])
+            if not raw then
+                return 0
+            end
+            store(KEYS[1], put(raw, 'status', cjson.encode(ARGV[1])))
+            return 1
+            """);
+
+    CacheScript SET_SERVER_STATUS_HASH = new CacheScript("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'status', ARGV[1])
+            return 1
+            """);
+}
@@ -2,11 +2,11 @@ package de.redstonecloud.api.redis.cache;
 
 public interface Cacheable {
     default void updateCache() {
-        new Cache().set(cacheKey(), this.toString(), expireSeconds());
+        new Cache().update(this);
     }
 
     default void resetCache() {
-        new Cache().delete(cacheKey());
+        new Cache().reset(this);
     }
 
     default long expireSeconds() {
@@ -0,0 +1,22 @@
+package de.redstonecloud.api.redis.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Cacheable} that can be stored field by field in {@link CacheMode#HASH}.
+ */
+public interface HashCacheable extends Cacheable {
+    /**
+     * Fields of the hash at {@link #cacheKey()}, without {@code null} values. Fields missing from the map are removed from the hash.
+     */
+    Map<String, String> cacheFields();
+
+    /**
+     * Sets stored next to the hash, by key. Keys should carry the cache key as hash tag,
+     * so they live on the same shard as the hash.
+     */
+    default Map<String, Set<String>> cacheSets() {
+        return Map.of();
+    }
+}
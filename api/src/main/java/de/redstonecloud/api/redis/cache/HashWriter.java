@@ -0,0 +1,195 @@
+package de.redstonecloud.api.redis.cache;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes {@link HashCacheable} state as Redis hashes and sets.
+ * <p>
+ * Remembers what it last wrote per key and only sends the difference: {@code HMSET}/{@code HDEL} for changed
+ * fields and {@code SADD}/{@code SREM} for changed set members. The first write of a key replaces whatever
+ * was stored before, including a JSON string from {@link CacheMode#JSON}.
+ * <p>
+ * Changed fields go out with {@code HMSET} because a multi-field {@code HSET} needs Redis 4+, and the internal
+ * instance runs Redis 2.8.
+ */
+public class HashWriter {
+    protected final ConcurrentHashMap<String, Snapshot> written = new ConcurrentHashMap<>();
+
+    /**
+     * Appends the commands that bring the stored state of the object up to date.
+     *
+     * @return the state written once the pipeline was synced without errors, pass it to {@link #commit}
+     */
+    public Snapshot append(Pipeline pipeline, HashCacheable cacheable) {
+        String key = cacheable.cacheKey();
+        Snapshot previous = this.written.get(key);
+        Snapshot current = new Snapshot(cacheable.cacheFields(), cacheable.cacheSets());
+
+        List<Response<?>> responses = current.responses;
+        if (previous == null) {
+            responses.add(pipeline.del(key));
+            if (!current.fields.isEmpty()) {
+                responses.add(pipeline.hmset(key, current.fields));
+            }
+        } else {
+            Map<String, String> changed = new HashMap<>();
+            current.fields.forEach((field, value) -> {
+                if (!value.equals(previous.fields.get(field))) {
+                    changed.put(field, value);
+                }
+            });
+
+            if (!changed.isEmpty()) {
+                responses.add(pipeline.hmset(key, changed));
+            }
+
+            for (String field : previous.fields.keySet()) {
+                if (!current.fields.containsKey(field)) {
+                    responses.add(pipeline.hdel(key, field));
+                }
+            }
+        }
+
+        current.sets.forEach((setKey, members) -> {
+            Set<String> previousMembers = previous != null ? previous.sets.get(setKey) : null;
+            if (previousMembers == null) {
+                responses.add(pipeline.del(setKey));
+                if (!members.isEmpty()) {
+                    responses.add(pipeline.sadd(setKey, members.toArray(new String[0])));
+                }
+                return;
+            }
+
+            String[] added = members.stream().filter(member -> !previousMembers.contains(member)).toArray(String[]::new);
+            String[] removed = previousMembers.stream().filter(member -> !members.contains(member)).toArray(String[]::new);
+            if (added.length > 0) {
+                responses.add(pipeline.sadd(setKey, added));
+            }
+            if (removed.length > 0) {
+                responses.add(pipeline.srem(setKey, removed));
+            }
+        });
+
+        long seconds = cacheable.expireSeconds();
+        if (seconds != -1L) {
+            responses.add(pipeline.expire(key, seconds));
+            for (String setKey : current.sets.keySet()) {
+                responses.add(pipeline.expire(setKey, seconds));
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Remembers the state as written after its pipeline was synced.
+     * <p>
+     * Pipelined commands do not throw on sync, their errors sit in the responses. If any command of the
+     * snapshot failed, the key is forgotten so the next write replaces it completely, and the error is thrown.
+     *
+     * @throws redis.clients.jedis.exceptions.JedisDataException if Redis rejected one of the commands
+     */
+    public void commit(String key, Snapshot snapshot) {
+        try {
+            for (Response<?> response : snapshot.responses) {
+                response.get();
+            }
+        } catch (RuntimeException e) {
+            this.forget(key);
+            throw e;
+        }
+
+        snapshot.responses.clear();
+        this.written.put(key, snapshot);
+    }
+
+    /**
+     * Records a field change written by someone else, like a {@link CacheScript}, so it is not sent again
+     * and later changes are diffed against it. Does nothing if nothing was written for the key yet.
+     *
+     * @param value the new value, {@code null} if the field was removed
+     */
+    public void applyField(String key, String field, String value) {
+        this.written.computeIfPresent(key, (k, snapshot) -> snapshot.withField(field, value));
+    }
+
+    /**
+     * Records a set member change written by someone else, see {@link #applyField}.
+     */
+    public void applyMember(String key, String setKey, String member, boolean present) {
+        this.written.computeIfPresent(key, (k, snapshot) -> snapshot.withMember(setKey, member, present));
+    }
+
+    /**
+     * Forgets what was written for the key, the next write replaces the stored state completely.
+     * Call it when the key was deleted or its write failed.
+     */
+    public void forget(String key) {
+        this.written.remove(key);
+    }
+
+    /**
+     * Writes the object on the calling thread.
+     */
+    public synchronized void write(JedisPool pool, HashCacheable cacheable) {
+        String key = cacheable.cacheKey();
+        try (Jedis jedis = pool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            Snapshot snapshot = this.append(pipeline, cacheable);
+            pipeline.sync();
+            this.commit(key, snapshot);
+        } catch (RuntimeException e) {
+            this.forget(key);
+            throw e;
+        }
+    }
+
+    public static final class Snapshot {
+        private final Map<String, String> fields;
+        private final Map<String, Set<String>> sets;
+        private final List<Response<?>> responses = new ArrayList<>();
+
+        private Snapshot(Map<String, String> fields, Map<String, Set<String>> sets) {
+            // copies, the object may hand out live collections
+            this.fields = Map.copyOf(fields);
+            this.sets = new HashMap<>();
+            sets.forEach((setKey, members) -> this.sets.put(setKey, new HashSet<>(members)));
+        }
+
+        private Snapshot withField(String field, String value) {
+            Map<String, String> fields = new HashMap<>(this.fields);
+            if (value == null) {
+                fields.remove(field);
+            } else {
+                fields.put(field, value);
+            }
+
+            return new Snapshot(fields, this.sets);
+        }
+
+        private Snapshot withMember(String setKey, String member, boolean present) {
+            Snapshot snapshot = new Snapshot(this.fields, this.sets);
+            Set<String> members = snapshot.sets.get(setKey);
+            if (members != null) {
+                if (present) {
+                    members.add(member);
+                } else {
+                    members.remove(member);
+                }
+            }
+
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package de.redstonecloud.api.redis.cache;
+
+import com.google.common.cache.CacheBuilder;
+import de.redstonecloud.api.redis.RedisConnectionManager;
+import de.redstonecloud.api.redis.RedisShards;
+import de.redstonecloud.api.util.Keys;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded local copy of Redis values for keys with one of the configured prefixes.
+ * <p>
+ * Entries are invalidated by Redis itself: per shard, one connection enables {@code CLIENT TRACKING}
+ * in broadcast mode for the prefixes, redirected to itself, and subscribes to {@code __redis__:invalidate}.
+ * Keys of a shard are only cached while its invalidation connection is subscribed. Requires Redis 6 or newer,
+ * on older servers nothing is cached.
+ */
+public class NearCache {
+    private static final byte[] INVALIDATE_CHANNEL = "__redis__:invalidate".getBytes(StandardCharsets.UTF_8);
+    // cached for keys that do not exist
+    private static final Object ABSENT = new Object();
+
+    protected final RedisConnectionManager connectionManager;
+    protected final RedisShards shards;
+    protected final String[] prefixes;
+    protected final com.google.common.cache.Cache<String, Object> entries;
+
+    // bumped by every invalidation, loads that overlap one are not stored
+    protected final AtomicLong epoch = new AtomicLong();
+    protected final AtomicBoolean[] tracking;
+    protected final Jedis[] connections;
+
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final LongAdder invalidations = new LongAdder();
+
+    private volatile boolean running = true;
+
+    public NearCache(RedisConnectionManager connectionManager, List<String> prefixes, long maximumSize, Duration timeToLive) {
+        RedisShards shards = connectionManager.getShards();
+        this.connectionManager = connectionManager;
+        this.shards = shards;
+        this.prefixes = prefixes.toArray(new String[0]);
+        this.entries = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+        this.tracking = new AtomicBoolean[shards.size()];
+        this.connections = new Jedis[shards.size()];
+
+        for (int shard = 0; shard < shards.size(); shard++) {
+            this.tracking[shard] = new AtomicBoolean();
+            this.listen(shard);
+        }
+    }
+
+    /**
+     * Creates the near cache configured by {@code CACHE_NEAR_PREFIXES}, {@code CACHE_NEAR_SIZE}
+     * and {@code CACHE_NEAR_TTL} (seconds), or returns {@code null} if no prefix is configured.
+     */
+    public static NearCache fromEnvironment(RedisConnectionManager connections) {
+        String prefixes = read(Keys.ENV_CACHE_NEAR_PREFIXES, Keys.PROPERTY_CACHE_NEAR_PREFIXES);
+        if (prefixes == null || prefixes.isBlank()) {
+            return null;
+        }
+
+        String size = read(Keys.ENV_CACHE_NEAR_SIZE, Keys.PROPERTY_CACHE_NEAR_SIZE);
+        String ttl = read(Keys.ENV_CACHE_NEAR_TTL, Keys.PROPERTY_CACHE_NEAR_TTL);
+
+        return new NearCache(
+                connections,
+                Arrays.stream(prefixes.split(",")).map(String::trim).filter(prefix -> !prefix.isEmpty()).toList(),
+                size != null ? Long.parseLong(size) : 10_000,
+                Duration.ofSeconds(ttl != null ? Long.parseLong(ttl) : 60)
+        );
+    }
+
+    /**
+     * @return whether reads of the key are currently served from this cache
+     */
+    public boolean covers(String key) {
+        for (String prefix : this.prefixes) {
+            if (key.startsWith(prefix)) {
+                return this.tracking[this.shards.shardOf(key)].get();
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the cached value of the key, loading and caching it on a miss.
+     */
+    public <T> T get(String key, Supplier<T> loader) {
+        Object entry = this.lookup(key);
+        if (entry != null) {
+            return unwrap(entry);
+        }
+
+        long epoch = this.epoch();
+        T loaded = loader.get();
+        this.putIfUnchanged(key, loaded, epoch);
+
+        return loaded;
+    }
+
+    /**
+     * Returns the cached entry of the key, or {@code null} on a miss. Cached values of keys that do not exist
+     * are non-null entries, {@link #unwrap(Object)} turns an entry into its value.
+     */
+    public Object lookup(String key) {
+        Object entry = this.entries.getIfPresent(key);
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+
+        this.hits.increment();
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T unwrap(Object entry) {
+        return entry == ABSENT ? null : (T) entry;
+    }
+
+    /**
+     * Current invalidation epoch, take it before loading values for {@link #putIfUnchanged}.
+     */
+    public long epoch() {
+        return this.epoch.get();
+    }
+
+    /**
+     * Caches a loaded value unless an invalidation arrived since {@code epoch} was taken.
+     */
+    public void putIfUnchanged(String key, Object value, long epoch) {
+        if (this.epoch.get() == epoch) {
+            this.entries.put(key, value == null ? ABSENT : value);
+        }
+    }
+
+    public void invalidate(String key) {
+        this.epoch.incrementAndGet();
+        this.entries.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        this.epoch.incrementAndGet();
+        this.entries.invalidateAll();
+    }
+
+    public NearCacheStats getStats() {
+        return new NearCacheStats(this.entries.size(), this.hits.sum(), this.misses.sum(), this.invalidations.sum());
+    }
+
+    public void shutdown() {
+        this.running = false;
+        for (Jedis connection : this.connections) {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    private void listen(int shard) {
+        HostAndPort endpoint = this.shards.endpoint(shard);
+        Thread thread = new Thread(() -> {
+            while (this.running) {
+                try (Jedis jedis = this.connectionManager.connect(shard)) {
+                    this.connections[shard] = jedis;
+                    this.enableTracking(jedis);
+                    jedis.subscribe(new Invalidations(shard), INVALIDATE_CHANNEL);
+                } catch (JedisDataException e) {
+                    System.out.println("[CACHE] Near cache disabled for " + endpoint + ", client tracking is not supported: " + e.getMessage());
+                    break;
+                } catch (Exception e) {
+                    if (!this.running) {
+                        break;
+                    }
+                } finally {
+                    // invalidations may have been missed while the connection was down
+                    this.tracking[shard].set(false);
+                    this.invalidateAll();
+                }
+
+                try {
+                    Thread.sleep(1000L); // backoff before reconnect
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }, "Redis-Invalidation-" + shard);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void enableTracking(Jedis jedis) {
+        List<String> args = new ArrayList<>(List.of("TRACKING", "on", "REDIRECT", String.valueOf(jedis.clientId()), "BCAST"));
+        for (String prefix : this.prefixes) {
+            args.add("PREFIX");
+            args.add(prefix);
+        }
+
+        jedis.sendCommand(Protocol.Command.CLIENT, args.toArray(new String[0]));
+    }
+
+    private class Invalidations extends BinaryJedisPubSub {
+        private final int shard;
+
+        private Invalidations(int shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public void onSubscribe(byte[] channel, int subscribedChannels) {
+            // anything cached before the subscription could have missed its invalidation
+            NearCache.this.invalidateAll();
+            NearCache.this.tracking[this.shard].set(true);
+        }
+
+        @Override
+        public void onMessage(byte[] channel, byte[] message) {
+            NearCache.this.invalidations.increment();
+
+            // null is sent when the database was flushed
+            if (message == null) {
+                NearCache.this.invalidateAll();
+            } else {
+                NearCache.this.invalidate(new String(message, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String read(String env, String property) {
+        return System.getenv(env) != null ? System.getenv(env) : System.getProperty(property);
+    }
+}
@@ -0,0 +1,16 @@
+package de.redstonecloud.api.redis.cache;
+
+/**
+ * Point-in-time statistics of a {@link NearCache}.
+ *
+ * @param size          entries currently held
+ * @param hits          reads served locally
+ * @param misses        reads of covered keys that went to Redis
+ * @param invalidations invalidation messages received from Redis
+ */
+public record NearCacheStats(long size, long hits, long misses, long invalidations) {
+    public double hitRate() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+}
@@ -0,0 +1,278 @@
+package de.redstonecloud.api.redis.cache;
+
+import de.redstonecloud.api.redis.RedisShards;
+import de.redstonecloud.api.util.Keys;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.SetParams;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Deferred writes of {@link Cacheable} state.
+ * <p>
+ * {@link #markDirty(Cacheable)} only remembers the latest object per cache key. A flusher thread serializes
+ * every dirty object each {@code flushInterval} and writes them as {@code SET ... EX} through one pipeline
+ * per shard, so several updates of the same object in between cost a single write. With a {@link HashWriter}
+ * {@link HashCacheable}s are written as their changed hash fields and set members instead.
+ * If the flusher did not complete a flush for {@code maxStaleness}, callers marking objects dirty flush
+ * on their own thread instead, which bounds how long an update can stay unwritten.
+ */
+public class WriteBehindCache {
+    protected final RedisShards shards;
+    protected final JedisPool[] pools;
+    protected final NearCache nearCache;
+    protected final HashWriter hashWriter;
+    protected final long flushIntervalNanos;
+    protected final long maxStalenessNanos;
+
+    // a new entry per mark, so a flush only removes the keys that were not marked again while it wrote
+    protected final ConcurrentHashMap<String, Dirty> dirty = new ConcurrentHashMap<>();
+    // flushes and deletes of dirty keys run one at a time, so an older value never lands after a newer write
+    protected final Object flushLock = new Object();
+
+    protected final LongAdder marked = new LongAdder();
+    protected final LongAdder written = new LongAdder();
+    protected final LongAdder flushes = new LongAdder();
+    protected final LongAdder failed = new LongAdder();
+
+    private final Thread flusher;
+    private volatile long lastFlush = System.nanoTime();
+    private volatile boolean running = true;
+
+    public WriteBehindCache(RedisShards shards, JedisPool[] pools, NearCache nearCache, HashWriter hashWriter,
+                            Duration flushInterval, Duration maxStaleness) {
+        this.shards = shards;
+        this.pools = pools;
+        this.nearCache = nearCache;
+        this.hashWriter = hashWriter;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxStalenessNanos = maxStaleness.toNanos();
+
+        this.flusher = new Thread(this::run, "Redis-Write-Behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Creates the write-behind cache configured by {@code CACHE_WRITE_BEHIND_INTERVAL} and
+     * {@code CACHE_WRITE_BEHIND_MAX_STALENESS} (milliseconds), or returns {@code null} if the interval is {@code 0}.
+     */
+    public static WriteBehindCache fromEnvironment(RedisShards shards, JedisPool[] pools, NearCache nearCache, HashWriter hashWriter) {
+        String interval = read(Keys.ENV_CACHE_WRITE_BEHIND_INTERVAL, Keys.PROPERTY_CACHE_WRITE_BEHIND_INTERVAL);
+        String maxStaleness = read(Keys.ENV_CACHE_WRITE_BEHIND_MAX_STALENESS, Keys.PROPERTY_CACHE_WRITE_BEHIND_MAX_STALENESS);
+
+        long intervalMillis = interval != null && !interval.isBlank() ? Long.parseLong(interval.trim()) : 50;
+        if (intervalMillis <= 0) {
+            return null;
+        }
+
+        long maxStalenessMillis = maxStaleness != null && !maxStaleness.isBlank() ? Long.parseLong(maxStaleness.trim()) : 1000;
+        return new WriteBehindCache(
+                shards,
+                pools,
+                nearCache,
+                hashWriter,
+                Duration.ofMillis(intervalMillis),
+                Duration.ofMillis(Math.max(maxStalenessMillis, intervalMillis))
+        );
+    }
+
+    /**
+     * Schedules the current state of the object to be written with the next flush.
+     * After {@link #shutdown()} it is written right away.
+     */
+    public void markDirty(Cacheable cacheable) {
+        this.dirty.put(cacheable.cacheKey(), new Dirty(cacheable));
+        this.marked.increment();
+
+        if (!this.running || System.nanoTime() - this.lastFlush > this.maxStalenessNanos) {
+            this.flush();
+        }
+    }
+
+    /**
+     * @return the serialized state of a key that is waiting to be written, or {@code null} if it is not dirty
+     */
+    public String pending(String key) {
+        Dirty entry = this.dirty.get(key);
+        return entry != null ? entry.cacheable.toString() : null;
+    }
+
+    /**
+     * Drops pending writes of the keys and runs the delete while no flush is in progress,
+     * so a flush cannot bring the keys back afterwards.
+     */
+    public <T> T discard(String[] keys, Supplier<T> delete) {
+        return this.exclusive(() -> {
+            for (String key : keys) {
+                this.dirty.remove(key);
+            }
+
+            return delete.get();
+        });
+    }
+
+    /**
+     * Runs the action while no flush is in progress, for writes that must not interleave with one.
+     */
+    public <T> T exclusive(Supplier<T> action) {
+        synchronized (this.flushLock) {
+            return action.get();
+        }
+    }
+
+    /**
+     * Writes all dirty objects on the calling thread.
+     */
+    public void flush() {
+        synchronized (this.flushLock) {
+            long started = System.nanoTime();
+            if (!this.dirty.isEmpty()) {
+                this.write();
+                this.flushes.increment();
+            }
+
+            this.lastFlush = started;
+        }
+    }
+
+    public WriteBehindStats getStats() {
+        return new WriteBehindStats(
+                this.dirty.size(),
+                this.marked.sum(),
+                this.written.sum(),
+                this.flushes.sum(),
+                this.failed.sum()
+        );
+    }
+
+    /**
+     * Stops the flusher and writes everything still dirty. Objects marked dirty afterwards are written directly.
+     */
+    public void shutdown() {
+        this.running = false;
+        LockSupport.unpark(this.flusher);
+
+        try {
+            this.flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.flush();
+    }
+
+    private void run() {
+        while (this.running) {
+            LockSupport.parkNanos(this, this.flushIntervalNanos);
+            if (!this.running) {
+                break;
+            }
+
+            try {
+                this.flush();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write() {
+        ObjectArrayList<Map.Entry<String, Dirty>>[] batches = new ObjectArrayList[this.pools.length];
+        for (int shard = 0; shard < batches.length; shard++) {
+            batches[shard] = new ObjectArrayList<>();
+        }
+
+        // entries stay until they are written, so pending() covers the time the write is in flight
+        for (Map.Entry<String, Dirty> entry : this.dirty.entrySet()) {
+            batches[this.shards.shardOf(entry.getKey())].add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+
+        for (int shard = 0; shard < batches.length; shard++) {
+            if (!batches[shard].isEmpty()) {
+                this.write(this.pools[shard], batches[shard]);
+            }
+        }
+    }
+
+    private void write(JedisPool pool, ObjectArrayList<Map.Entry<String, Dirty>> batch) {
+        HashWriter.Snapshot[] snapshots = this.hashWriter != null ? new HashWriter.Snapshot[batch.size()] : null;
+        Response<?>[] responses = new Response<?>[batch.size()];
+        try (Jedis jedis = pool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < batch.size(); i++) {
+                Map.Entry<String, Dirty> entry = batch.get(i);
+                Cacheable cacheable = entry.getValue().cacheable;
+                if (snapshots != null && cacheable instanceof HashCacheable hashCacheable) {
+                    snapshots[i] = this.hashWriter.append(pipeline, hashCacheable);
+                    continue;
+                }
+
+                long seconds = cacheable.expireSeconds();
+                if (seconds != -1L) {
+                    responses[i] = pipeline.set(entry.getKey(), cacheable.toString(), SetParams.setParams().ex(seconds));
+                } else {
+                    responses[i] = pipeline.set(entry.getKey(), cacheable.toString());
+                }
+            }
+            pipeline.sync();
+
+            // errors of pipelined commands only show in their responses, rejected entries stay dirty
+            int written = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Map.Entry<String, Dirty> entry = batch.get(i);
+                try {
+                    if (snapshots != null && snapshots[i] != null) {
+                        this.hashWriter.commit(entry.getKey(), snapshots[i]);
+                    } else {
+                        responses[i].get();
+                    }
+                } catch (JedisDataException e) {
+                    this.failed.increment();
+                    System.out.println("Write-behind of " + entry.getKey() + " failed: " + e.getMessage());
+                    continue;
+                }
+
+                // objects marked again while writing stay dirty, their state may have changed after serializing
+                this.dirty.remove(entry.getKey(), entry.getValue());
+                written++;
+            }
+            this.written.add(written);
+        } catch (Exception e) {
+            // the entries stay dirty and are retried with the next flush, hashes are then rewritten completely
+            this.failed.add(batch.size());
+            e.printStackTrace();
+
+            if (this.hashWriter != null) {
+                for (Map.Entry<String, Dirty> entry : batch) {
+                    this.hashWriter.forget(entry.getKey());
+                }
+            }
+        } finally {
+            if (this.nearCache != null) {
+                for (Map.Entry<String, Dirty> entry : batch) {
+                    this.nearCache.invalidate(entry.getKey());
+                }
+            }
+        }
+    }
+
+    private record Dirty(Cacheable cacheable) {
+    }
+
+    private static String read(String env, String property) {
+        return System.getenv(env) != null ? System.getenv(env) : System.getProperty(property);
+    }
+}
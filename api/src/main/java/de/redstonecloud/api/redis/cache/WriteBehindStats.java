@@ -0,0 +1,19 @@
+package de.redstonecloud.api.redis.cache;
+
+/**
+ * Point-in-time statistics of a {@link WriteBehindCache}.
+ *
+ * @param dirty   objects currently waiting to be written
+ * @param marked  calls that marked an object dirty
+ * @param written objects written to Redis
+ * @param flushes flushes that wrote at least one object
+ * @param failed  object writes that failed and were retried
+ */
+public record WriteBehindStats(int dirty, long marked, long written, long flushes, long failed) {
+    /**
+     * Share of updates that were coalesced into a write of a later update.
+     */
+    public double coalescedRate() {
+        return marked == 0 ? 0 : 1 - (double) written / marked;
+    }
+}
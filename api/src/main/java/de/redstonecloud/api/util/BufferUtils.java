@@ -0,0 +1,125 @@
+package de.redstonecloud.api.util;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+public class BufferUtils {
+
+    public static void writeVarInt(ByteBuf buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf.writeByte(value);
+    }
+
+    public static int readVarInt(ByteBuf buf) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift >= 35) {
+                throw new IllegalArgumentException("VarInt too big");
+            }
+
+            b = buf.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string. The prefix is {@code length + 1}, so {@code 0} encodes {@code null}.
+     */
+    public static void writeString(ByteBuf buf, String value) {
+        if (value == null) {
+            writeVarInt(buf, 0);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(buf, bytes.length + 1);
+        buf.writeBytes(bytes);
+    }
+
+    public static String readString(ByteBuf buf) {
+        int length = readVarInt(buf) - 1;
+        if (length < 0) {
+            return null;
+        }
+
+        String value = buf.toString(buf.readerIndex(), length, StandardCharsets.UTF_8);
+        buf.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * Like {@link #readString(ByteBuf)}, but returns {@code previous} without allocating if the bytes encode it.
+     * Lets pooled packets keep the strings of fields that did not change.
+     */
+    public static String readString(ByteBuf buf, String previous) {
+        int length = readVarInt(buf) - 1;
+        if (length < 0) {
+            return null;
+        }
+
+        int start = buf.readerIndex();
+        String value = previous != null && matches(previous, buf, start, length)
+                ? previous
+                : buf.toString(start, length, StandardCharsets.UTF_8);
+        buf.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * @return whether the bytes at {@code start} are the UTF-8 form of the string, only ASCII strings ever match
+     */
+    public static boolean matches(String value, ByteBuf buf, int start, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || c != buf.getByte(start + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public static void writeUUID(ByteBuf buf, UUID uuid) {
+        buf.writeBoolean(uuid != null);
+        if (uuid != null) {
+            buf.writeLong(uuid.getMostSignificantBits());
+            buf.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    public static UUID readUUID(ByteBuf buf) {
+        if (!buf.readBoolean()) {
+            return null;
+        }
+
+        return new UUID(buf.readLong(), buf.readLong());
+    }
+
+    /**
+     * Like {@link #readUUID(ByteBuf)}, but returns {@code previous} without allocating if it is the same UUID.
+     */
+    public static UUID readUUID(ByteBuf buf, UUID previous) {
+        if (!buf.readBoolean()) {
+            return null;
+        }
+
+        long most = buf.readLong();
+        long least = buf.readLong();
+        return previous != null && previous.getMostSignificantBits() == most && previous.getLeastSignificantBits() == least
+                ? previous
+                : new UUID(most, least);
+    }
+}
@@ -7,7 +7,32 @@ public interface Keys {
     String PROPERTY_REDIS_IP = "redis.bind";
     String PROPERTY_REDIS_PORT = "redis.port";
     String PROPERTY_REDIS_DB = "redis.db";
+    String ENV_REDIS_SHARDS = "REDIS_SHARDS";
+    String PROPERTY_REDIS_SHARDS = "redis.shards";
+    String ENV_REDIS_SOCKET = "REDIS_SOCKET";
+    String PROPERTY_REDIS_SOCKET = "redis.socket";
+
+    String ENV_BROKER_FORMAT = "BROKER_FORMAT";
+    String PROPERTY_BROKER_FORMAT = "broker.format";
+    String ENV_BROKER_STREAM_ROUTES = "BROKER_STREAM_ROUTES";
+    String PROPERTY_BROKER_STREAM_ROUTES = "broker.streamRoutes";
+    String ENV_BROKER_COMPRESSION_THRESHOLD = "BROKER_COMPRESSION_THRESHOLD";
+    String PROPERTY_BROKER_COMPRESSION_THRESHOLD = "broker.compressionThreshold";
+
+    String ENV_CACHE_MODE = "CACHE_MODE";
+    String PROPERTY_CACHE_MODE = "cache.mode";
+    String ENV_CACHE_NEAR_PREFIXES = "CACHE_NEAR_PREFIXES";
+    String PROPERTY_CACHE_NEAR_PREFIXES = "cache.nearPrefixes";
+    String ENV_CACHE_NEAR_SIZE = "CACHE_NEAR_SIZE";
+    String PROPERTY_CACHE_NEAR_SIZE = "cache.nearSize";
+    String ENV_CACHE_NEAR_TTL = "CACHE_NEAR_TTL";
+    String PROPERTY_CACHE_NEAR_TTL = "cache.nearTtl";
+    String ENV_CACHE_WRITE_BEHIND_INTERVAL = "CACHE_WRITE_BEHIND_INTERVAL";
+    String PROPERTY_CACHE_WRITE_BEHIND_INTERVAL = "cache.writeBehindInterval";
+    String ENV_CACHE_WRITE_BEHIND_MAX_STALENESS = "CACHE_WRITE_BEHIND_MAX_STALENESS";
+    String PROPERTY_CACHE_WRITE_BEHIND_MAX_STALENESS = "cache.writeBehindMaxStaleness";
 
     String CACHE_PREFIX_SERVER = "server:";
     String CACHE_PREFIX_PLAYER = "player:";
+    String CACHE_PREFIX_ENCRYPTION = "encryption:";
 }
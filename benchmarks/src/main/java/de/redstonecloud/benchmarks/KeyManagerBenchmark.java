@@ -0,0 +1,101 @@
+package de.redstonecloud.benchmarks;
+
+import de.redstonecloud.api.encryption.KeyManager;
+import de.redstonecloud.api.encryption.KeyPairStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import java.io.ByteArrayOutputStream;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encryption throughput of {@link KeyManager} at typical broker payload sizes, against the plain RSA it replaced.
+ * <p>
+ * The legacy variants use a new {@code RSA} cipher per block like the old implementation did. It only took a
+ * single block of up to 501 bytes with RSA-4096, larger payloads are split into blocks to have something to
+ * compare against.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyManagerBenchmark {
+    private static final int LEGACY_BLOCK = KeyPairStore.KEY_SIZE / 8 - 11;
+
+    @Param({"64", "512", "4096"})
+    public int payloadSize;
+
+    private byte[] payload;
+
+    private PublicKey publicKey;
+    private byte[] envelope;
+
+    private KeyPair legacyPair;
+    private byte[][] legacyBlocks;
+
+    @Setup
+    public void setup() throws Exception {
+        this.payload = new byte[this.payloadSize];
+        ThreadLocalRandom.current().nextBytes(this.payload);
+
+        this.publicKey = KeyManager.init();
+        this.envelope = KeyManager.encrypt(this.payload, this.publicKey);
+
+        this.legacyPair = KeyPairStore.generate();
+        this.legacyBlocks = this.encryptLegacy();
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return KeyManager.encrypt(this.payload, this.publicKey);
+    }
+
+    /**
+     * Decrypts a message of a known session, the wrapped session key is only unwrapped for the first one.
+     */
+    @Benchmark
+    public byte[] decrypt() {
+        return KeyManager.decrypt(this.envelope);
+    }
+
+    @Benchmark
+    public byte[][] encryptLegacy() throws Exception {
+        byte[][] blocks = new byte[(this.payload.length + LEGACY_BLOCK - 1) / LEGACY_BLOCK][];
+        for (int i = 0; i < blocks.length; i++) {
+            Cipher cipher = Cipher.getInstance("RSA");
+            cipher.init(Cipher.ENCRYPT_MODE, this.legacyPair.getPublic());
+
+            int offset = i * LEGACY_BLOCK;
+            blocks[i] = cipher.doFinal(this.payload, offset, Math.min(LEGACY_BLOCK, this.payload.length - offset));
+        }
+
+        return blocks;
+    }
+
+    @Benchmark
+    public byte[] decryptLegacy() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(this.payload.length);
+        for (byte[] block : this.legacyBlocks) {
+            Cipher cipher = Cipher.getInstance("RSA");
+            cipher.init(Cipher.DECRYPT_MODE, this.legacyPair.getPrivate());
+            out.write(cipher.doFinal(block));
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+package de.redstonecloud.benchmarks;
+
+import de.redstonecloud.api.redis.broker.BrokerHelper;
+import de.redstonecloud.api.redis.broker.BrokerOptions;
+import de.redstonecloud.api.redis.broker.codec.BrokerCodec;
+import de.redstonecloud.api.redis.broker.codec.WireFormat;
+import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.redis.broker.packet.defaults.player.PlayerConnectPacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a received {@link PlayerConnectPacket}, the pooled packet type with the most traffic.
+ * Run with {@code -prof gc} to see the bytes allocated per decode ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketDecodeBenchmark {
+    @Param({"BINARY", "JSON"})
+    public WireFormat format;
+
+    private BrokerCodec codec;
+    private byte[] payload;
+    private byte[][] distinct;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.codec = new BrokerCodec(BrokerHelper.constructRegistry(), BrokerOptions.builder().wireFormat(this.format).build(), 1L);
+
+        PlayerConnectPacket packet = new PlayerConnectPacket("Steve", UUID.randomUUID(), "127.0.0.1:19132", "Lobby-1");
+        packet.setSessionId(1);
+        packet.setFrom("proxy-1");
+        packet.setTo("cloud");
+        this.payload = this.codec.encode(packet);
+
+        this.distinct = new byte[16][];
+        for (int i = 0; i < this.distinct.length; i++) {
+            PlayerConnectPacket other = new PlayerConnectPacket("Player" + i, UUID.randomUUID(), "127.0.0.1:" + (19132 + i), "Lobby-" + i);
+            other.setSessionId(i + 2);
+            other.setFrom("proxy-1");
+            other.setTo("cloud");
+            this.distinct[i] = this.codec.encode(other);
+        }
+    }
+
+    /**
+     * Decodes the packet and gives it back to its pool, like the broker does after the listeners ran.
+     */
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        PlayerConnectPacket packet = (PlayerConnectPacket) this.codec.decode(this.payload);
+        blackhole.consume(packet.getUuid());
+        blackhole.consume(packet.getServer());
+        packet.recycle();
+    }
+
+    /**
+     * Like {@link #decode}, but every decode carries another player, so no body field can be kept.
+     */
+    @Benchmark
+    public void decodeDistinct(Blackhole blackhole) {
+        PlayerConnectPacket packet = (PlayerConnectPacket) this.codec.decode(this.distinct[this.next++ & 15]);
+        blackhole.consume(packet.getUuid());
+        blackhole.consume(packet.getServer());
+        packet.recycle();
+    }
+
+    /**
+     * Decodes the packet without giving it back, so every decode creates a new instance.
+     */
+    @Benchmark
+    public Packet decodeUnpooled() {
+        return (Packet) this.codec.decode(this.payload);
+    }
+}
@@ -1,6 +1,7 @@
 package de.redstonecloud.cloud;
 
 import de.redstonecloud.api.redis.broker.Broker;
+import de.redstonecloud.api.redis.broker.BrokerOptions;
 import de.redstonecloud.api.redis.broker.BrokerHelper;
 import de.redstonecloud.api.redis.cache.Cache;
 import de.redstonecloud.api.util.Keys;
@@ -52,6 +53,14 @@ public class JarStart {
         System.setProperty(Keys.PROPERTY_REDIS_PORT, String.valueOf(redisCfg.port()));
         System.setProperty(Keys.PROPERTY_REDIS_IP, redisCfg.connectIp());
         System.setProperty(Keys.PROPERTY_REDIS_DB, String.valueOf(redisCfg.dbId()));
+        System.setProperty(Keys.PROPERTY_REDIS_SHARDS, redisCfg.shards());
+        System.setProperty(Keys.PROPERTY_REDIS_SOCKET, redisCfg.sockets());
+        System.setProperty(Keys.PROPERTY_CACHE_NEAR_PREFIXES, String.join(",", redisCfg.nearCachePrefixes()));
+        System.setProperty(Keys.PROPERTY_CACHE_MODE, redisCfg.cacheMode().name());
+        System.setProperty(Keys.PROPERTY_CACHE_WRITE_BEHIND_INTERVAL, String.valueOf(redisCfg.writeBehindInterval()));
+        System.setProperty(Keys.PROPERTY_BROKER_FORMAT, RedstoneCloud.getConfig().broker().format().name());
+        System.setProperty(Keys.PROPERTY_BROKER_COMPRESSION_THRESHOLD, String.valueOf(RedstoneCloud.getConfig().broker().compressionThreshold()));
+        System.setProperty(Keys.PROPERTY_BROKER_STREAM_ROUTES, String.join(",", RedstoneCloud.getConfig().broker().streamRoutes()));
 
         if(redisCfg.internalInstance()) {
             RedstoneCloud.redisInstance = new RedisInstance();
@@ -61,7 +70,13 @@ public class JarStart {
 
         try {
             log.info("Starting internal redis");
-            RedstoneCloud.broker = new Broker("cloud", BrokerHelper.constructRegistry(), "cloud");
+            BrokerOptions.BrokerOptionsBuilder brokerOptions = BrokerOptions.fromEnvironment().toBuilder()
+                    .loopbackMirror(RedstoneCloud.getConfig().broker().mirrorLoopback());
+            if (RedstoneCloud.getConfig().broker().dispatchPartitions() > 0) {
+                brokerOptions.dispatchPartitions(RedstoneCloud.getConfig().broker().dispatchPartitions());
+            }
+
+            RedstoneCloud.broker = new Broker("cloud", BrokerHelper.constructRegistry(), brokerOptions.build(), "cloud");
             RedstoneCloud.broker.listen("cloud", PacketHandler::handle);
         } catch (Exception e) {
             log.error(System.getenv(Keys.ENV_REDIS_IP) != null ? System.getenv(Keys.ENV_REDIS_IP) : System.getProperty(Keys.PROPERTY_REDIS_IP));
@@ -2,6 +2,7 @@ package de.redstonecloud.cloud;
 
 import de.redstonecloud.api.encryption.KeyManager;
 import de.redstonecloud.api.encryption.cache.KeyCache;
+import de.redstonecloud.api.redis.RedisConnectionManager;
 import de.redstonecloud.cloud.cluster.ClusterManager;
 import de.redstonecloud.cloud.commands.defaults.*;
 import de.redstonecloud.cloud.config.CloudConfig;
@@ -16,20 +17,28 @@ import de.redstonecloud.shared.config.SnakeYamlConfig;
 import de.redstonecloud.shared.console.Console;
 import de.redstonecloud.cloud.scheduler.TaskScheduler;
 import de.redstonecloud.cloud.scheduler.defaults.CheckTemplateTask;
+import de.redstonecloud.cloud.scheduler.defaults.KeyRotationTask;
 import de.redstonecloud.cloud.server.ServerManager;
 import de.redstonecloud.shared.console.ConsoleThread;
+import de.redstonecloud.shared.utils.Directories;
 import de.redstonecloud.cloud.utils.Utils;
 import eu.okaeri.configs.ConfigManager;
 import lombok.Getter;
 import de.redstonecloud.api.redis.broker.Broker;
 import de.redstonecloud.api.redis.cache.Cache;
 import lombok.extern.log4j.Log4j2;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.nio.file.Path;
 import java.security.PublicKey;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Getter
 @Log4j2
@@ -66,10 +75,15 @@ public class RedstoneCloud {
         log.debug("[BOOT] Starting cloud scheduler");
         this.scheduler = new TaskScheduler(new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors()));
 
-        log.debug("[BOOT] Creating public key");
-        PublicKey publicKey = KeyManager.init();
+        log.debug("[BOOT] Loading key pair");
         this.keyCache = new KeyCache();
-        this.keyCache.addKey("cloud", publicKey);
+        // a new key pair is generated in the background, only its first user waits for it
+        KeyManager.init(keysFile(), keyRotation())
+                .thenAccept(publicKey -> this.keyCache.addKey("cloud", publicKey))
+                .exceptionally(e -> {
+                    log.error("Could not initialize the cloud key pair", e);
+                    return null;
+                });
 
         log.debug("[BOOT] Creating folders");
         Utils.createBaseFolders();
@@ -94,6 +108,9 @@ public class RedstoneCloud {
         this.consoleThread.start();
 
         this.scheduler.scheduleRepeatingTask(new CheckTemplateTask(), 3000L);
+        if (keyRotation() != null) {
+            this.scheduler.scheduleTask(new KeyRotationTask(keyRotation()), TimeUnit.HOURS, 1L, 1L);
+        }
         log.debug("[BOOT] Enable all plugins");
         this.pluginManager.enableAllPlugins();
 
@@ -116,6 +133,33 @@ public class RedstoneCloud {
         initCommands();
     }
 
+    /**
+     * Replaces the cloud key pair. The old public key is unpublished once the new one is in use,
+     * messages already encrypted for it can still be decrypted.
+     */
+    public CompletableFuture<PublicKey> rotateKeys() {
+        // the rotation knows which key it replaced, also when it joined one that was already running
+        return KeyManager.rotate(keysFile()).thenApply(rotation -> {
+            this.keyCache.addKey("cloud", rotation.current());
+            if (rotation.previous() != null && !rotation.previous().equals(rotation.current())) {
+                this.keyCache.removeKey("cloud", rotation.previous());
+            }
+            return rotation.current();
+        }).exceptionally(e -> {
+            log.error("Could not rotate the cloud key pair", e);
+            return null;
+        });
+    }
+
+    private static Path keysFile() {
+        return config.encryption().persistKeys() ? Directories.KEYS_FILE.toPath() : null;
+    }
+
+    private static Duration keyRotation() {
+        int days = config.encryption().keyRotationDays();
+        return days > 0 ? Duration.ofDays(days) : null;
+    }
+
     private void initCommands() {
         log.debug("[BOOT] Loading commands");
 
@@ -131,6 +175,8 @@ public class RedstoneCloud {
         commandManager.addCommand(new UpdateCommand("update"));
         commandManager.addCommand(new ReloadCommand("reload"));
         commandManager.addCommand(new RestApiCommand("restapi"));
+        commandManager.addCommand(new BrokerCommand("broker"));
+        commandManager.addCommand(new KeyCommand("key"));
 
         log.debug("[BOOT] Registered {} commands", commandManager.getCommandMap().size());
     }
@@ -203,11 +249,19 @@ public class RedstoneCloud {
             log.debug("[SHUTDOWN] Shutting down EventManager");
             this.eventManager.getThreadedExecutor().shutdown();
 
+            log.debug("[SHUTDOWN] Writing pending cache updates");
+            cache.shutdownWriteBehind();
+
             log.debug("[SHUTDOWN] Flushing RC Redis");
-            broker.getPool().getResource().flushDB();
+            for (JedisPool pool : broker.getPools()) {
+                try (Jedis jedis = pool.getResource()) {
+                    jedis.flushDB();
+                }
+            }
 
             log.debug("[SHUTDOWN] Shutdown Broker");
             broker.shutdown();
+            RedisConnectionManager.get().shutdown();
 
             log.debug("[SHUTDOWN] Stopping scheduler");
             this.scheduler.stopScheduler();
@@ -0,0 +1,107 @@
+package de.redstonecloud.cloud.commands.defaults;
+
+import de.redstonecloud.api.redis.RedisConnectionManager;
+import de.redstonecloud.api.redis.RedisLatencyProbe;
+import de.redstonecloud.api.redis.RedisPoolStats;
+import de.redstonecloud.api.redis.broker.Broker;
+import de.redstonecloud.api.redis.broker.codec.CompressionStats;
+import de.redstonecloud.api.redis.broker.dispatch.PartitionStats;
+import de.redstonecloud.api.redis.broker.metrics.BrokerMetrics;
+import de.redstonecloud.api.redis.broker.publish.PublishStats;
+import de.redstonecloud.cloud.RedstoneCloud;
+import de.redstonecloud.cloud.commands.Command;
+import de.redstonecloud.shared.commands.CommandCompletion;
+import de.redstonecloud.shared.commands.CommandExecution;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Arrays;
+
+@Log4j2
+public class BrokerCommand extends Command {
+    public BrokerCommand(String cmd) {
+        super(cmd);
+        CommandCompletion completion = CommandCompletion.root();
+
+        completion.add(CommandCompletion.literal("stats"));
+        completion.add(CommandCompletion.literal("channels"));
+        completion.add(CommandCompletion.literal("packets"));
+        completion.add(CommandCompletion.literal("partitions"));
+        completion.add(CommandCompletion.literal("connections"));
+        completion.add(CommandCompletion.literal("latency"));
+
+        setCompletions(completion);
+    }
+
+    @Override
+    public void onCommand(CommandExecution execution) {
+        String[] args = execution.args();
+        String section = args.length == 0 ? "stats" : args[0].toLowerCase();
+
+        Broker broker = RedstoneCloud.getBroker();
+        BrokerMetrics metrics = broker.getMetrics();
+
+        switch (section) {
+            case "stats" -> {
+                PublishStats publish = broker.getPublisher().getStats();
+                CompressionStats compression = broker.getCodec().getCompressionStats();
+
+                log.info("== BROKER ==");
+                log.info("Publish: queued={} published={} batches={} avgBatch={} conflated={} dropped={} failed={} errors={}",
+                        publish.queueDepth(), publish.published(), publish.batches(),
+                        String.format("%.1f", publish.averageBatchSize()), publish.conflated(), publish.dropped(), publish.failed(),
+                        metrics.getPublishErrors().sum());
+                log.info("Queue wait: {}", broker.getPublisher().getQueueWait().snapshot());
+                log.info("Decode: {}", metrics.getDecodeTime().snapshot());
+                log.info("Handle: {}", metrics.getHandleTime().snapshot());
+                log.info("Requests: total={} pending={} timeouts={} ({}%)",
+                        metrics.getRequests().sum(), broker.getPendingResponses().size(), metrics.getTimeouts().sum(),
+                        String.format("%.2f", metrics.timeoutRate() * 100));
+                log.info("Round trip: {}", metrics.getRoundTripTime().snapshot());
+                log.info("Dispatch: expired={}", broker.getDispatcher().getExpired());
+                log.info("Malformed payloads: {}, unknown packets: {}",
+                        metrics.getMalformedPayloads().sum(), broker.getPacketRegistry().getUnknownPackets());
+                log.info("Compression: compressed={} skipped={} ratio={} cpu={}ms",
+                        compression.compressed(), compression.skipped(), String.format("%.2f", compression.ratio()),
+                        (compression.compressNanos() + compression.decompressNanos()) / 1_000_000);
+            }
+            case "channels" -> {
+                log.info("== BROKER CHANNELS ==");
+                metrics.channelStats().forEach((channel, stats) ->
+                        log.info("{}: in={} out={}", channel.isEmpty() ? "*" : channel, stats.in(), stats.out()));
+            }
+            case "packets" -> {
+                log.info("== BROKER PACKETS ==");
+                metrics.packetStats().forEach((packetId, stats) ->
+                        log.info("#{}: in={} out={}", packetId, stats.in(), stats.out()));
+            }
+            case "partitions" -> {
+                log.info("== BROKER PARTITIONS ==");
+                for (PartitionStats stats : broker.getDispatcher().getStats()) {
+                    log.info("#{}: queued={} lanes={} lag={}ms dispatched={} expired={}",
+                            stats.partition(), stats.queued(), Arrays.toString(stats.lanes()), stats.lagNanos() / 1_000_000,
+                            stats.dispatched(), stats.expired());
+                }
+            }
+            case "connections" -> {
+                RedisConnectionManager connections = broker.getConnectionManager();
+                log.info("== REDIS CONNECTIONS ==");
+                for (RedisPoolStats stats : connections.getStats()) {
+                    log.info("{}#{}: active={} idle={} waiting={} limit={} wait={}us (max {}us) borrowed={} created={} destroyed={} resized={}",
+                            stats.client(), stats.shard(), stats.active(), stats.idle(), stats.waiters(), stats.maxTotal(),
+                            stats.meanBorrowWaitMicros(), stats.maxBorrowWaitMicros(), stats.borrowed(), stats.created(),
+                            stats.destroyed(), stats.resized());
+                }
+                log.info("Dedicated: {}", connections.getDedicatedConnections());
+            }
+            case "latency" -> {
+                log.info("== REDIS LATENCY ==");
+                for (int shard = 0; shard < broker.getShards().size(); shard++) {
+                    RedisLatencyProbe.Result result = RedisLatencyProbe.measure(broker.getShards(), shard, 10_000);
+                    log.info("#{} tcp: {}", shard, result.tcp());
+                    log.info("#{} unix: {}", shard, result.unix() != null ? result.unix() : "no socket configured");
+                }
+            }
+            default -> log.error("Usage: broker [stats|channels|packets|partitions|connections|latency]");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package de.redstonecloud.cloud.commands.defaults;
+
+import de.redstonecloud.api.encryption.KeyManager;
+import de.redstonecloud.api.encryption.KeyPairStore;
+import de.redstonecloud.cloud.RedstoneCloud;
+import de.redstonecloud.cloud.commands.Command;
+import de.redstonecloud.shared.commands.CommandCompletion;
+import de.redstonecloud.shared.commands.CommandExecution;
+import de.redstonecloud.shared.utils.Directories;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Base64;
+
+@Log4j2
+public class KeyCommand extends Command {
+    public KeyCommand(String cmd) {
+        super(cmd);
+        CommandCompletion completion = CommandCompletion.root();
+
+        completion.add(CommandCompletion.literal("info"));
+        completion.add(CommandCompletion.literal("rotate"));
+
+        setCompletions(completion);
+    }
+
+    @Override
+    public void onCommand(CommandExecution execution) {
+        String[] args = execution.args();
+        String section = args.length == 0 ? "info" : args[0].toLowerCase();
+
+        switch (section) {
+            case "info" -> {
+                String encoded = Base64.getEncoder().encodeToString(KeyManager.getPublicKey().getEncoded());
+                log.info("== CLOUD KEY ==");
+                log.info("Public key: ...{}", encoded.substring(encoded.length() - 24));
+                if (Directories.KEYS_FILE.isFile()) {
+                    log.info("Stored in {}, {} days old", Directories.KEYS_FILE.getPath(),
+                            KeyPairStore.age(Directories.KEYS_FILE.toPath()).toDays());
+                } else {
+                    log.info("Not stored on disk");
+                }
+            }
+            case "rotate" -> {
+                log.info("Generating a new cloud key pair...");
+                RedstoneCloud.getInstance().rotateKeys()
+                        .thenRun(() -> log.info("Cloud key pair rotated"));
+            }
+            default -> log.error("Usage: key [info|rotate]");
+        }
+    }
+}
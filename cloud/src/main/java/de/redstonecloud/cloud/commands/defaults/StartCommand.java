@@ -4,6 +4,7 @@ import de.redstonecloud.cloud.RedstoneCloud;
 import de.redstonecloud.cloud.commands.Command;
 import de.redstonecloud.shared.commands.CommandCompletion;
 import de.redstonecloud.shared.commands.CommandExecution;
+import de.redstonecloud.shared.server.Server;
 import de.redstonecloud.shared.server.Template;
 import lombok.extern.log4j.Log4j2;
 
@@ -52,10 +53,16 @@ public class StartCommand extends Command {
 
         if (amount != 1 && newId == -1) {
             for (int i = 0; i < amount; i++) {
-                RedstoneCloud.getInstance().getServerManager().startServer(template);
+                RedstoneCloud.getInstance().getServerManager().startServer(template).thenAccept(this::started);
             }
-        } else RedstoneCloud.getInstance().getServerManager().startServer(template, newId);
-        log.info("Successfully started server using template " + template.getName());
+        } else RedstoneCloud.getInstance().getServerManager().startServer(template, newId).thenAccept(this::started);
+        log.info("Creating server using template " + template.getName());
+    }
+
+    private void started(Server server) {
+        if (server != null) {
+            log.info("Successfully started server " + server.getName());
+        }
     }
 
     private int parseIntSafe(String value, int fallback) {
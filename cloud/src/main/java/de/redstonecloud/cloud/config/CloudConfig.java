@@ -1,7 +1,9 @@
 package de.redstonecloud.cloud.config;
 
 import de.redstonecloud.cloud.config.entires.BridgeSettings;
+import de.redstonecloud.cloud.config.entires.BrokerSettings;
 import de.redstonecloud.cloud.config.entires.ClusterSettings;
+import de.redstonecloud.cloud.config.entires.EncryptionSettings;
 import de.redstonecloud.cloud.config.entires.RedisSettings;
 import de.redstonecloud.cloud.config.entires.RestApiSettings;
 import de.redstonecloud.shared.startmethods.StartMethods;
@@ -22,12 +24,18 @@ public final class CloudConfig extends OkaeriConfig {
     @Comment("Redis Settings")
     private RedisSettings redis = new RedisSettings();
 
+    @Comment("Broker Settings")
+    private BrokerSettings broker = new BrokerSettings();
+
     @Comment("Bridge Settings")
     private BridgeSettings bridge = new BridgeSettings();
 
     @Comment("Cluster settings")
     private ClusterSettings cluster = new ClusterSettings();
 
+    @Comment("Encryption key settings")
+    private EncryptionSettings encryption = new EncryptionSettings();
+
     @Comment("Optional REST API settings")
     private RestApiSettings restApi = new RestApiSettings();
 
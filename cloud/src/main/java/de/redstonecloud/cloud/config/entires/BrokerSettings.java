@@ -0,0 +1,34 @@
+package de.redstonecloud.cloud.config.entires;
+
+import de.redstonecloud.api.redis.broker.codec.WireFormat;
+import eu.okaeri.configs.OkaeriConfig;
+import eu.okaeri.configs.annotation.Comment;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Accessors(fluent = true)
+public class BrokerSettings extends OkaeriConfig {
+    @Comment("Wire format of outgoing broker payloads, passed on to all started servers")
+    @Comment("Options: JSON, BINARY. Every format is always accepted on receive, so peers can be migrated one by one")
+    WireFormat format = WireFormat.JSON;
+
+    @Comment("BINARY payloads of at least this many bytes are compressed, -1 disables compression. Passed on to all started servers")
+    int compressionThreshold = 1024;
+
+    @Comment("Number of threads handling incoming broker traffic. Packets of the same player, server or template stay in order")
+    @Comment("0 uses one thread per available processor")
+    int dispatchPartitions = 0;
+
+    @Comment("Routes carried over Redis Streams instead of pub/sub, passed on to all started servers (requires Redis 5+)")
+    @Comment("Stream routes keep payloads sent while a receiver reconnects. Example: [\"cloud\"]")
+    List<String> streamRoutes = new ArrayList<>();
+
+    @Comment("Packets the cloud sends to its own routes are delivered in-process. Enable to also publish them to Redis for external observers")
+    boolean mirrorLoopback = false;
+}
@@ -0,0 +1,18 @@
+package de.redstonecloud.cloud.config.entires;
+
+import eu.okaeri.configs.OkaeriConfig;
+import eu.okaeri.configs.annotation.Comment;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Accessors(fluent = true)
+public class EncryptionSettings extends OkaeriConfig {
+    @Comment("Keep the cloud key pair in .keys/cloud.pem instead of generating a new one on every start")
+    boolean persistKeys = true;
+
+    @Comment("Days after which the cloud key pair is replaced, 0 never rotates it")
+    int keyRotationDays = 30;
+}
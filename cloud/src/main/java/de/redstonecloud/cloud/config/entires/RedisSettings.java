@@ -1,11 +1,17 @@
 package de.redstonecloud.cloud.config.entires;
 
+import de.redstonecloud.api.redis.cache.CacheMode;
+import de.redstonecloud.api.util.Keys;
 import eu.okaeri.configs.OkaeriConfig;
 import eu.okaeri.configs.annotation.Comment;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.experimental.Accessors;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 @EqualsAndHashCode(callSuper = true)
 @Data
 @Accessors(fluent = true)
@@ -22,10 +28,74 @@ public class RedisSettings extends OkaeriConfig {
     @Comment("Redis Database ID")
     int dbId = 0;
 
+    @Comment({"Ports of additional Redis shards on the same IP, broker routes and cache keys are spread across all of them",
+            "The internal instance starts one embedded Redis per port"})
+    List<Integer> shardPorts = new ArrayList<>();
+
+    @Comment({"Unix domain socket the cloud and servers on this host connect through instead of TCP, empty uses TCP only",
+            "The internal instance listens on it, shards on '<path>.<port>'. With an external Redis, set it to its unixsocket"})
+    String unixSocket = "";
+
+    @Comment({"Key prefixes whose values the cloud and its servers keep in a local near cache",
+            "Invalidated through Redis client tracking, which requires Redis 6 or newer (the internal instance does not support it)"})
+    List<String> nearCachePrefixes = new ArrayList<>(List.of(Keys.CACHE_PREFIX_SERVER));
+
+    @Comment({"How server and player state is stored in Redis, passed on to all started servers",
+            "Options: JSON (one string per entry), HASH (one hash per entry, connected players in a separate set, only changed fields are written)"})
+    CacheMode cacheMode = CacheMode.JSON;
+
+    @Comment({"Milliseconds the cloud collects server and player cache updates before writing them in one batch",
+            "0 writes every update directly"})
+    int writeBehindInterval = 50;
+
     public String connectIp() {
         if (internalInstance && ("0.0.0.0".equals(ip) || "0.0.0.0/0".equals(ip))) {
             return "127.0.0.1";
         }
         return ip;
     }
+
+    /**
+     * Absolute socket path of the Redis on the given port, or {@code null} if no socket is configured.
+     */
+    public String socketPath(int redisPort) {
+        if (unixSocket == null || unixSocket.isBlank()) {
+            return null;
+        }
+
+        String path = new File(unixSocket).getAbsolutePath();
+        return redisPort == port ? path : path + "." + redisPort;
+    }
+
+    /**
+     * Socket paths in the {@code REDIS_SOCKET} format, in the order of {@link #shards()}, empty without a socket.
+     */
+    public String sockets() {
+        if (socketPath(port) == null) {
+            return "";
+        }
+
+        List<String> sockets = new ArrayList<>();
+        sockets.add(socketPath(port));
+        for (int shardPort : shardPorts) {
+            sockets.add(socketPath(shardPort));
+        }
+        return String.join(",", sockets);
+    }
+
+    /**
+     * Shard list in the {@code REDIS_SHARDS} format, empty if Redis is not sharded.
+     */
+    public String shards() {
+        if (shardPorts.isEmpty()) {
+            return "";
+        }
+
+        List<String> shards = new ArrayList<>();
+        shards.add(connectIp() + ":" + port);
+        for (int shardPort : shardPorts) {
+            shards.add(connectIp() + ":" + shardPort);
+        }
+        return String.join(",", shards);
+    }
 }
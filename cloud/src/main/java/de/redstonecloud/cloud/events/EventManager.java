@@ -2,7 +2,6 @@ package de.redstonecloud.cloud.events;
 
 import de.redstonecloud.cloud.RedstoneCloud;
 import de.redstonecloud.cloud.utils.ThreadFactoryBuilder;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import lombok.Getter;
 
 import java.util.concurrent.*;
@@ -18,7 +17,7 @@ public class EventManager {
 
     private final RedstoneCloud cloud;
     private final ExecutorService threadedExecutor;
-    private final Object2ObjectOpenHashMap<Class<? extends Event>, EventHandler> handlerMap = new Object2ObjectOpenHashMap<>();
+    private final ConcurrentHashMap<Class<? extends Event>, EventHandler> handlerMap = new ConcurrentHashMap<>();
 
     public EventManager(RedstoneCloud cloud) {
         this.cloud = cloud;
@@ -7,17 +7,19 @@ import de.redstonecloud.api.components.ICloudServer;
 import de.redstonecloud.api.components.ServerActions;
 import de.redstonecloud.api.components.cache.PlayerData;
 import de.redstonecloud.api.redis.broker.packet.defaults.server.ServerActionPacket;
-import de.redstonecloud.api.redis.cache.Cacheable;
+import de.redstonecloud.api.redis.cache.Cache;
+import de.redstonecloud.api.redis.cache.HashCacheable;
 import de.redstonecloud.api.util.Keys;
 import de.redstonecloud.shared.server.Server;
 import lombok.Builder;
 import lombok.Setter;
 
+import java.util.Map;
 import java.util.UUID;
 
 @Setter
 @Builder
-public class CloudPlayer implements ICloudPlayer, Cacheable {
+public class CloudPlayer implements ICloudPlayer, HashCacheable {
     protected String name;
     protected HostAndPort address;
     private Server network;
@@ -28,16 +30,23 @@ public class CloudPlayer implements ICloudPlayer, Cacheable {
 
     @Override
     public String toString() {
-        JsonObject obj = new PlayerData(
+        return toData().toJson().toString();
+    }
+
+    @Override
+    public Map<String, String> cacheFields() {
+        return toData().toFields();
+    }
+
+    private PlayerData toData() {
+        return new PlayerData(
                 name,
                 uuid,
                 address.toString(),
                 network != null ? network.getName() : null,
                 server != null ? server.getName() : null,
                 extraData
-        ).toJson();
-
-        return obj.toString();
+        );
     }
 
 
@@ -58,35 +67,37 @@ public class CloudPlayer implements ICloudPlayer, Cacheable {
 
     public void setConnectedServer(Server srv) {
         long updateMS = System.currentTimeMillis();
+        Server previous = server;
 
-        if(server != null) {
-            server.getPlayers().remove(uuid);
-            server.updateCache();
-            server.setLastPlayerUpdate(updateMS);
+        if(previous != null) {
+            previous.getPlayers().remove(uuid);
+            previous.setLastPlayerUpdate(updateMS);
         }
         server = srv;
-        updateCache();
         if(srv != null && !srv.getPlayers().contains(uuid)) {
             srv.getPlayers().add(uuid);
-            srv.updateCache();
             server.setLastPlayerUpdate(updateMS);
         }
+
+        // player and both servers change in one step, readers never see the player on two servers or none
+        new Cache().transferPlayer(uuid, previous != null ? previous.getName() : null, srv != null ? srv.getName() : null);
     }
 
     public void setConnectedNetwork(Server srv) {
         long updateMS = System.currentTimeMillis();
-        if(network != null) {
-            network.getPlayers().remove(uuid);
-            network.updateCache();
-            network.setLastPlayerUpdate(updateMS);
+        Server previous = network;
+
+        if(previous != null) {
+            previous.getPlayers().remove(uuid);
+            previous.setLastPlayerUpdate(updateMS);
         }
         network = srv;
-        updateCache();
         if(srv != null && !srv.getPlayers().contains(uuid)) {
             srv.getPlayers().add(uuid);
-            srv.updateCache();
             network.setLastPlayerUpdate(updateMS);
         }
+
+        new Cache().transferPlayerNetwork(uuid, previous != null ? previous.getName() : null, srv != null ? srv.getName() : null);
     }
 
     @Override
@@ -4,17 +4,17 @@ import de.redstonecloud.api.redis.cache.Cache;
 import de.redstonecloud.api.util.Keys;
 import lombok.Getter;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PlayerManager {
     @Getter
     private static PlayerManager instance;
     @Getter
-    public Map<UUID, CloudPlayer> players = new HashMap<>();
+    public Map<UUID, CloudPlayer> players = new ConcurrentHashMap<>();
     @Getter
-    public Map<String, CloudPlayer> playersByName = new HashMap<>();
+    public Map<String, CloudPlayer> playersByName = new ConcurrentHashMap<>();
 
     public PlayerManager() {
         instance = this;
@@ -118,11 +118,15 @@ public class PacketHandler {
 
     private static void on(StartServerPacket packet) {
         Template t = ServerManager.getInstance().getTemplate(packet.getTemplate());
-        Server s = ServerManager.getInstance().startServer(t);
+        ServerManager.getInstance().startServer(t).thenAccept(s -> {
+            if (s == null) {
+                return;
+            }
 
-        new ServerStartedPacket(s.getName())
-                .setTo(packet.getFrom())
-                .setSessionId(packet.getSessionId())
-                .send();
+            new ServerStartedPacket(s.getName())
+                    .setTo(packet.getFrom())
+                    .setSessionId(packet.getSessionId())
+                    .send();
+        });
     }
 }
@@ -3,11 +3,17 @@ package de.redstonecloud.cloud.redis;
 import de.redstonecloud.cloud.RedstoneCloud;
 import lombok.Getter;
 import redis.embedded.RedisServer;
+import redis.embedded.RedisServerBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public class RedisInstance {
     @Getter
     public static boolean running = false;
     private static RedisServer redisServer;
+    private static final List<RedisServer> shardServers = new ArrayList<>();
 
     public static RedisServer getRedisServer() {
         return redisServer;
@@ -16,19 +22,44 @@ public class RedisInstance {
     public RedisInstance() {
         if(redisServer != null) return;
         try {
-            redisServer = RedisServer.builder()
-                    .port(RedstoneCloud.getConfig().redis().port())
-                    .setting("bind " + RedstoneCloud.getConfig().redis().ip())
-                    .build();
+            redisServer = builder(RedstoneCloud.getConfig().redis().port()).build();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
         redisServer.start();
+
+        for (int shardPort : RedstoneCloud.getConfig().redis().shardPorts()) {
+            RedisServer shardServer;
+            try {
+                shardServer = builder(shardPort).build();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            shardServer.start();
+            shardServers.add(shardServer);
+        }
+    }
+
+    private static RedisServerBuilder builder(int port) {
+        RedisServerBuilder builder = RedisServer.builder()
+                .port(port)
+                .setting("bind " + RedstoneCloud.getConfig().redis().ip());
+
+        String socket = RedstoneCloud.getConfig().redis().socketPath(port);
+        if (socket != null) {
+            new File(socket).getParentFile().mkdirs();
+            builder.setting("unixsocket " + socket)
+                    .setting("unixsocketperm 700");
+        }
+
+        return builder;
     }
 
     public void shutdown() {
         if (redisServer != null) {
             redisServer.stop();
         }
+
+        shardServers.forEach(RedisServer::stop);
     }
 }
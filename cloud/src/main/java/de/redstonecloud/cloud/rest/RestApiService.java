@@ -134,6 +134,8 @@ public class RestApiService {
     private void handleRequest(HttpExchange exchange) throws IOException {
         String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
         String path = exchange.getRequestURI().getPath();
+        // set by handlers that respond after the request returned, they close the exchange themselves
+        boolean async = false;
         try {
             if (!path.startsWith("/api/v1")) {
                 sendError(exchange, 404, "Route not found.");
@@ -211,7 +213,7 @@ public class RestApiService {
                 if (authenticate(exchange, Set.of(PERM_SERVER_MANAGE)) == null) {
                     return;
                 }
-                startServer(exchange);
+                async = startServer(exchange);
                 return;
             }
 
@@ -249,32 +251,45 @@ public class RestApiService {
             log.error("REST API request failed: {} {}", method, path, e);
             sendError(exchange, 500, "Internal server error.");
         } finally {
-            exchange.close();
+            if (!async) {
+                exchange.close();
+            }
         }
     }
 
-    private void startServer(HttpExchange exchange) throws IOException {
+    /**
+     * @return true if the response is sent once the server started
+     */
+    private boolean startServer(HttpExchange exchange) throws IOException {
         JsonObject body = parseBody(exchange);
         if (!body.has("template")) {
             sendError(exchange, 400, "Missing 'template' in body.");
-            return;
+            return false;
         }
 
         String templateName = body.get("template").getAsString();
         Template template = RedstoneCloud.getInstance().getServerManager().getTemplate(templateName);
         if (template == null) {
             sendError(exchange, 404, "Template not found.");
-            return;
+            return false;
         }
 
         Integer id = body.has("id") && !body.get("id").isJsonNull() ? body.get("id").getAsInt() : null;
-        Server started = RedstoneCloud.getInstance().getServerManager().startServer(template, id);
-        if (started == null) {
-            sendError(exchange, 409, "Server could not be started.");
-            return;
-        }
+        RedstoneCloud.getInstance().getServerManager().startServer(template, id).whenComplete((started, error) -> {
+            try {
+                if (started == null) {
+                    sendError(exchange, 409, "Server could not be started.");
+                    return;
+                }
 
-        sendJson(exchange, 201, JsonParser.parseString(started.toString()).getAsJsonObject());
+                sendJson(exchange, 201, JsonParser.parseString(started.toString()).getAsJsonObject());
+            } catch (IOException e) {
+                log.error("REST API response failed: POST /api/v1/servers/start", e);
+            } finally {
+                exchange.close();
+            }
+        });
+        return true;
     }
 
     private void executeCommand(HttpExchange exchange, String serverName) throws IOException {
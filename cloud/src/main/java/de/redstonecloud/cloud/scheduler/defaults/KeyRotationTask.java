@@ -0,0 +1,35 @@
+package de.redstonecloud.cloud.scheduler.defaults;
+
+import de.redstonecloud.api.encryption.KeyPairStore;
+import de.redstonecloud.cloud.RedstoneCloud;
+import de.redstonecloud.cloud.scheduler.task.Task;
+import de.redstonecloud.shared.utils.Directories;
+
+import java.time.Duration;
+
+public class KeyRotationTask extends Task {
+    private final Duration maxAge;
+    private long rotatedAt = System.currentTimeMillis();
+
+    public KeyRotationTask(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    protected void onRun(long currentMillis) {
+        if (!RedstoneCloud.isRunning()) {
+            return;
+        }
+
+        // persisted keys may be older than this process
+        Duration age = RedstoneCloud.getConfig().encryption().persistKeys() && Directories.KEYS_FILE.isFile()
+                ? KeyPairStore.age(Directories.KEYS_FILE.toPath())
+                : Duration.ofMillis(currentMillis - this.rotatedAt);
+        if (age.compareTo(this.maxAge) < 0) {
+            return;
+        }
+
+        this.rotatedAt = currentMillis;
+        RedstoneCloud.getInstance().rotateKeys();
+    }
+}
@@ -15,10 +15,14 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @SuperBuilder
 public class ServerImpl extends Server {
+    private final ConcurrentHashMap<ServerStatus, CompletableFuture<Server>> transitions = new ConcurrentHashMap<>();
+
     public void setPort(int port) {
         this.port = port;
     }
@@ -98,6 +102,30 @@ public class ServerImpl extends Server {
         new RCNode(nodeId).stopServer(name, false);
     }
 
+    /**
+     * Completes once the server reaches the status or a later one before stopping,
+     * or exceptionally if it stops first.
+     */
+    public CompletableFuture<Server> awaitStatus(ServerStatus status) {
+        CompletableFuture<Server> future = this.transitions.computeIfAbsent(status, s -> new CompletableFuture<>());
+        // the status may have changed before the future was registered
+        onStatusChange(getStatus());
+        return future;
+    }
+
+    @Override
+    protected void onStatusChange(ServerStatus newStatus) {
+        this.transitions.forEach((awaited, future) -> {
+            if (newStatus.ordinal() >= awaited.ordinal() && newStatus.ordinal() < ServerStatus.STOPPING.ordinal()) {
+                this.transitions.remove(awaited, future);
+                future.complete(this);
+            } else if (newStatus == ServerStatus.STOPPED || newStatus == ServerStatus.ERROR) {
+                this.transitions.remove(awaited, future);
+                future.completeExceptionally(new IllegalStateException("Server " + name + " is " + newStatus + " before reaching " + awaited));
+            }
+        });
+    }
+
     @Override
     protected void sendStatusRemote(ServerStatus newStatus) {
         if(!isLocal())
@@ -5,6 +5,9 @@ import com.google.gson.JsonObject;
 import de.redstonecloud.api.RCClusteringProto;
 import de.redstonecloud.api.RCGenericProto;
 import de.redstonecloud.api.components.ServerStatus;
+import de.redstonecloud.api.redis.broker.Broker;
+import de.redstonecloud.api.redis.broker.packet.Packet;
+import de.redstonecloud.api.redis.broker.request.ScatterResult;
 import de.redstonecloud.api.util.Keys;
 import de.redstonecloud.cloud.RedstoneCloud;
 import de.redstonecloud.cloud.cluster.ClusterManager;
@@ -13,6 +16,7 @@ import de.redstonecloud.cloud.config.entires.BridgeSettings;
 import de.redstonecloud.cloud.config.entires.RedisSettings;
 import de.redstonecloud.cloud.events.defaults.ServerCreateEvent;
 import de.redstonecloud.cloud.events.defaults.ServerStartEvent;
+import de.redstonecloud.cloud.utils.ThreadFactoryBuilder;
 import de.redstonecloud.shared.config.SnakeYamlConfig;
 import de.redstonecloud.shared.files.TemplateConfig;
 import de.redstonecloud.shared.files.TypeConfig;
@@ -38,6 +42,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -51,6 +56,8 @@ public class ServerManager {
     private static final int DEFAULT_SHUTDOWN_TIME_MS = 5000;
     private static final int MIN_PORT = 10000;
     private static final int MAX_PORT = 50000;
+    // time a cluster node has to report a prepared or starting server
+    private static final long REMOTE_TRANSITION_TIMEOUT_SECONDS = 120;
 
     private static volatile ServerManager INSTANCE;
 
@@ -58,6 +65,15 @@ public class ServerManager {
     private final Object2ObjectOpenHashMap<String, Template> templates = new Object2ObjectOpenHashMap<>();
     private final ConcurrentHashMap<String, Server> servers = new ConcurrentHashMap<>();
 
+    // one creator keeps generated names unique, templates are copied in parallel
+    private final ExecutorService createExecutor = Executors.newSingleThreadExecutor(
+            ThreadFactoryBuilder.builder().format("Server-Create").daemon(true).build());
+    private final ExecutorService prepareExecutor = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+            ThreadFactoryBuilder.builder().format("Server-Prepare - #%d").daemon(true).build());
+    private final ExecutorService startExecutor = Executors.newSingleThreadExecutor(
+            ThreadFactoryBuilder.builder().format("Server-Start").daemon(true).build());
+
     /**
      * Gets the singleton instance of ServerManager.
      * Thread-safe double-checked locking implementation.
@@ -468,27 +484,31 @@ public class ServerManager {
      * Starts a new server with auto-generated ID.
      *
      * @param template the template to use
-     * @return the created server, or null if cancelled
+     * @return future of the started server, completed with null if creation was cancelled
      */
-    public Server startServer(Template template) {
+    public CompletableFuture<Server> startServer(Template template) {
         return startServer(template, null);
     }
 
     /**
      * Starts a new server with specified or auto-generated ID.
+     * <p>
+     * Creation, preparation and start run as stages on the server executors, the calling thread only builds
+     * the server. The future completes once the server reached {@link ServerStatus#STARTING}, servers on
+     * cluster nodes complete it through the status changes their node reports.
      *
      * @param template the template to use
      * @param id       the server ID, or null for auto-generation
-     * @return the created server, or null if cancelled
+     * @return future of the started server, completed with null if creation was cancelled or not possible
      */
-    public Server startServer(Template template, Integer id) {
+    public CompletableFuture<Server> startServer(Template template, Integer id) {
         if (!RedstoneCloud.isRunning()) {
             log.warn("Cannot start server while cloud is shutting down.");
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         if (template == null) {
             log.error("Cannot start server: template is null");
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
         String node = template.getNodes() != null && !template.getNodes().isEmpty() ? template.getNodes().getFirst() : "";
@@ -496,7 +516,7 @@ public class ServerManager {
         ClusterNode clusterNode = null;
         if(!node.isEmpty() && ClusterManager.isCluster() && ((clusterNode = ClusterManager.getInstance().getNodeById(node)) == null || clusterNode.getStream() == null || clusterNode.isShuttingDown())) {
             log.error("Cannot start server: specified node '{}' is not available", node);
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
         clusterNode = ClusterManager.isCluster() && !node.isEmpty() ? ClusterManager.getInstance().getNodeById(node) : null;
@@ -518,14 +538,34 @@ public class ServerManager {
                 .type(template.getType())
                 .port(generateRandomPort())
                 .nodeId(node)
-                .env(Map.of(
-                        Keys.ENV_REDIS_IP, redisCfg.connectIp(),
-                        Keys.ENV_REDIS_PORT, String.valueOf(redisCfg.port()),
-                        Keys.ENV_REDIS_DB, String.valueOf(redisCfg.dbId()),
-                        "BRIDGE_CFG", bridgeJson.toString()
+                .env(Map.ofEntries(
+                        Map.entry(Keys.ENV_REDIS_IP, redisCfg.connectIp()),
+                        Map.entry(Keys.ENV_REDIS_PORT, String.valueOf(redisCfg.port())),
+                        Map.entry(Keys.ENV_REDIS_DB, String.valueOf(redisCfg.dbId())),
+                        Map.entry(Keys.ENV_REDIS_SHARDS, redisCfg.shards()),
+                        // servers on cluster nodes run on another host and cannot reach the socket
+                        Map.entry(Keys.ENV_REDIS_SOCKET, clusterNode == null ? redisCfg.sockets() : ""),
+                        Map.entry(Keys.ENV_CACHE_NEAR_PREFIXES, String.join(",", redisCfg.nearCachePrefixes())),
+                        Map.entry(Keys.ENV_CACHE_MODE, redisCfg.cacheMode().name()),
+                        Map.entry(Keys.ENV_BROKER_FORMAT, RedstoneCloud.getConfig().broker().format().name()),
+                        Map.entry(Keys.ENV_BROKER_COMPRESSION_THRESHOLD, String.valueOf(RedstoneCloud.getConfig().broker().compressionThreshold())),
+                        Map.entry(Keys.ENV_BROKER_STREAM_ROUTES, String.join(",", RedstoneCloud.getConfig().broker().streamRoutes())),
+                        Map.entry("BRIDGE_CFG", bridgeJson.toString())
                 ))
                 .selectedMethod(RedstoneCloud.getConfig().startMethod()).build();
 
+        return CompletableFuture.supplyAsync(() -> create(server, id), this.createExecutor)
+                .thenCompose(created -> created ? prepare(server) : CompletableFuture.completedFuture(null))
+                .thenComposeAsync(prepared -> prepared != null ? start(server) : CompletableFuture.completedFuture(null), this.startExecutor)
+                .whenComplete((started, error) -> {
+                    if (error != null) {
+                        log.error("Failed to start server {}", server.getName(), error instanceof CompletionException ? error.getCause() : error);
+                        remove(server);
+                    }
+                });
+    }
+
+    private boolean create(ServerImpl server, Integer id) {
         server.initName(id);
 
         ServerCreateEvent event = RedstoneCloud.getInstance()
@@ -533,32 +573,43 @@ public class ServerManager {
                 .callEvent(new ServerCreateEvent(server));
 
         if (event.isCancelled()) {
-            log.info("Server creation cancelled by event for template: {}", template.getName());
-            return null;
+            log.info("Server creation cancelled by event for template: {}", server.getTemplate().getName());
+            return false;
         }
 
-        server.prepare();
-        //wait for server.getStatus() to be PREPARED, then start
+        // reserves the name and lets template checks count the server while it is prepared
         add(server);
-        //TODO: This might be in an extra thread later to not block the main thread
-        while (server.getStatus() != ServerStatus.PREPARED) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Interrupted while waiting for server to prepare", e);
-            }
+        return true;
+    }
+
+    private CompletableFuture<Server> prepare(ServerImpl server) {
+        CompletableFuture<Server> prepared = server.awaitStatus(ServerStatus.PREPARED);
+        CompletableFuture.runAsync(server::prepare, this.prepareExecutor).exceptionally(error -> {
+            prepared.completeExceptionally(error);
+            return null;
+        });
+
+        return server.isLocal() ? prepared : prepared.orTimeout(REMOTE_TRANSITION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<Server> start(ServerImpl server) {
+        if (!RedstoneCloud.isRunning()) {
+            log.warn("Not starting {}, cloud is shutting down.", server.getName());
+            remove(server);
+            return CompletableFuture.completedFuture(null);
         }
 
+        Template template = server.getTemplate();
         template.setRunningServers(template.getRunningServers() + 1);
 
+        CompletableFuture<Server> starting = server.awaitStatus(ServerStatus.STARTING);
         server.start();
         RedstoneCloud.getInstance()
                 .getEventManager()
                 .callEvent(new ServerStartEvent(server));
 
         log.info("Server {} created and scheduled to start", server.getName());
-        return server;
+        return server.isLocal() ? starting : starting.orTimeout(REMOTE_TRANSITION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
     }
 
     private int generateRandomPort() {
@@ -704,6 +755,31 @@ public class ServerManager {
         return new ArrayList<>(servers.values());
     }
 
+    /**
+     * Asks every running server of the template and collects their responses, see {@link Broker#scatter}.
+     *
+     * @param packetFactory creates the request sent to each server
+     * @param responseType  the expected response packet
+     * @return future completed with the responses collected until all servers answered or the request timed out
+     */
+    public <T extends Packet> CompletableFuture<ScatterResult<T>> scatter(Template template, Supplier<? extends Packet> packetFactory, Class<T> responseType) {
+        return RedstoneCloud.getBroker().scatter(routesOf(getServersByTemplate(template)), packetFactory, responseType);
+    }
+
+    /**
+     * Asks every running server of the type and collects their responses, see {@link Broker#scatter}.
+     */
+    public <T extends Packet> CompletableFuture<ScatterResult<T>> scatter(ServerType type, Supplier<? extends Packet> packetFactory, Class<T> responseType) {
+        return RedstoneCloud.getBroker().scatter(routesOf(getServersByType(type)), packetFactory, responseType);
+    }
+
+    private List<String> routesOf(Server[] servers) {
+        return Arrays.stream(servers)
+                .filter(server -> server.getStatus() == ServerStatus.RUNNING)
+                .map(server -> server.getName().toLowerCase())
+                .toList();
+    }
+
     public List<Template> getTemplatesForNode(String nodeId) {
         List<Template> templates = new ArrayList<>();
         for (Template template : this.templates.values()) {
@@ -7,7 +7,7 @@ import com.google.gson.JsonObject;
 import de.redstonecloud.api.components.ICloudServer;
 import de.redstonecloud.api.components.ServerStatus;
 import de.redstonecloud.api.components.cache.ServerData;
-import de.redstonecloud.api.redis.cache.Cacheable;
+import de.redstonecloud.api.redis.cache.HashCacheable;
 import de.redstonecloud.api.util.Keys;
 import de.redstonecloud.shared.startmethods.IStartMethod;
 import de.redstonecloud.shared.startmethods.StartMethods;
@@ -34,7 +34,7 @@ import java.util.concurrent.atomic.AtomicReference;
 @SuperBuilder
 @Getter
 @Log4j2
-public abstract class Server implements ICloudServer, Cacheable {
+public abstract class Server implements ICloudServer, HashCacheable {
     protected static final Gson GSON = new Gson();
 
     protected final Template template;
@@ -82,9 +82,39 @@ public abstract class Server implements ICloudServer, Cacheable {
     protected abstract void stopRemote();
     protected abstract void sendStatusRemote(ServerStatus newStatus);
 
+    /**
+     * Called after the status changed, locally or as reported by a node.
+     */
+    protected void onStatusChange(ServerStatus newStatus) {
+    }
+
     @Override
     public String toString() {
-        JsonObject obj = new ServerData(
+        return toData().toJson().toString();
+    }
+
+    @Override
+    public Map<String, String> cacheFields() {
+        return toData().toFields();
+    }
+
+    @Override
+    public Map<String, Set<String>> cacheSets() {
+        Set<String> members = new HashSet<>();
+        for (UUID player : players) {
+            members.add(player.toString());
+        }
+
+        return Map.of(ServerData.playersKey(cacheKey()), members);
+    }
+
+    protected ServerData toData() {
+        JsonArray connectedPlayers = new JsonArray();
+        for (UUID player : players) {
+            connectedPlayers.add(player.toString());
+        }
+
+        return new ServerData(
                 name,
                 uuid,
                 template.getName(),
@@ -92,13 +122,11 @@ public abstract class Server implements ICloudServer, Cacheable {
                 type.name(),
                 port,
                 type.isProxy(),
-                GSON.fromJson(GSON.toJson(players), JsonArray.class),
+                connectedPlayers,
                 new JsonObject(),
                 nodeId,
                 address
-        ).toJson();
-
-        return obj.toString();
+        );
     }
 
     @Override
@@ -111,6 +139,7 @@ public abstract class Server implements ICloudServer, Cacheable {
         ServerStatus oldStatus = statusRef.getAndSet(newStatus);
         if (oldStatus != newStatus) {
             updateCache();
+            onStatusChange(newStatus);
         }
 
         sendStatusRemote(newStatus);
@@ -120,6 +149,7 @@ public abstract class Server implements ICloudServer, Cacheable {
         ServerStatus oldStatus = statusRef.getAndSet(newStatus);
         if (oldStatus != newStatus) {
             updateCache();
+            onStatusChange(newStatus);
         }
     }
 
@@ -344,7 +374,10 @@ public abstract class Server implements ICloudServer, Cacheable {
             return;
         }
         stop();
-        startMethod.kill(template.getShutdownTimeMs());
+        // servers that are still being prepared have no process yet
+        if (startMethod != null) {
+            startMethod.kill(template.getShutdownTimeMs());
+        }
     }
 
     @Override
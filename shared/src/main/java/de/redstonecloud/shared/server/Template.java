@@ -97,9 +97,11 @@ public abstract class Template {
 
     private boolean isServerBlocked(Server server) {
         ServerStatus status = server.getStatus();
+        // NONE is a server that is still being prepared
         return status != ServerStatus.RUNNING &&
                 status != ServerStatus.STARTING &&
-                status != ServerStatus.PREPARED;
+                status != ServerStatus.PREPARED &&
+                status != ServerStatus.NONE;
     }
 
     private boolean canCreateMoreServers() {
@@ -13,5 +13,6 @@ public class Directories {
     public static final File LOGS_DIR = new File("./logs/");
     public static final File TYPES_DIR = new File("./types/");
     public static final File TMP_STORAGE_DIR = new File("./.tmp/");
+    public static final File KEYS_FILE = new File("./.keys/cloud.pem");
 
 }